@@ -0,0 +1,101 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.vesanieminen.froniusvisualizer.services.model.Contract;
+import com.vesanieminen.froniusvisualizer.services.model.UsageAggregates;
+
+/**
+ * Compares a spot contract with a fixed price one in closed form. The spot cost is linear in the margin,
+ * spotCost + margin * consumption, so once the consumption has been aggregated the break-even margin, the break-even
+ * fixed price and the cost at any margin are arithmetic on {@link UsageAggregates} without another pass over the
+ * hours. The VAT of every hour is already in {@link UsageAggregates#spotCost()} and the margin is quoted with VAT.
+ */
+public class BreakEvenService {
+
+    /**
+     * @param fromMargin c/kWh of the first point
+     * @param step       c/kWh between the points
+     * @param costs      € of the spot contract at every point including the monthly fees
+     */
+    public record CostCurve(double fromMargin, double step, double[] costs) {
+
+        public int size() {
+            return costs.length;
+        }
+
+        public double margin(int index) {
+            return fromMargin + index * step;
+        }
+
+        public double cost(int index) {
+            return costs[index];
+        }
+    }
+
+    /**
+     * @return the spot margin in c/kWh at which spot costs as much as the fixed price
+     * @throws IllegalArgumentException if there is no consumption
+     */
+    public static double breakEvenMargin(UsageAggregates aggregates, double fixedPrice) {
+        return breakEvenMargin(aggregates, new Contract.Fixed("", fixedPrice, 0), 0);
+    }
+
+    /**
+     * @return the spot margin in c/kWh at which spot with the monthly fee costs as much as the fixed contract, a
+     * higher margin makes the fixed contract cheaper
+     * @throws IllegalArgumentException if there is no consumption
+     */
+    public static double breakEvenMargin(UsageAggregates aggregates, Contract.Fixed fixed, double spotMonthlyFee) {
+        requireConsumption(aggregates);
+        final var fixedCost = fixed.energyCost(aggregates) + (fixed.monthlyFee() - spotMonthlyFee) * aggregates.months() * 100;
+        return (fixedCost - aggregates.spotCost()) / aggregates.consumption();
+    }
+
+    /**
+     * @return the fixed price in c/kWh at which the fixed contract costs as much as spot with the margin
+     * @throws IllegalArgumentException if there is no consumption
+     */
+    public static double breakEvenFixedPrice(UsageAggregates aggregates, double margin) {
+        return breakEvenFixedPrice(aggregates, new Contract.Spot("", margin, 0), 0);
+    }
+
+    /**
+     * @return the fixed price in c/kWh at which the fixed contract with the monthly fee costs as much as the spot
+     * contract, a lower price makes the fixed contract cheaper
+     * @throws IllegalArgumentException if there is no consumption
+     */
+    public static double breakEvenFixedPrice(UsageAggregates aggregates, Contract.Spot spot, double fixedMonthlyFee) {
+        requireConsumption(aggregates);
+        final var spotCost = spot.energyCost(aggregates) + (spot.monthlyFee() - fixedMonthlyFee) * aggregates.months() * 100;
+        return spotCost / aggregates.consumption();
+    }
+
+    // Without consumption every price breaks even and the division would give NaN or infinity
+    private static void requireConsumption(UsageAggregates aggregates) {
+        if (aggregates.consumption() == 0) {
+            throw new IllegalArgumentException("No consumption to break even with");
+        }
+    }
+
+    /**
+     * @return € of the spot contract including the monthly fees
+     */
+    public static double spotCost(UsageAggregates aggregates, double margin, double monthlyFee) {
+        return (aggregates.spotCost() + margin * aggregates.consumption()) / 100 + monthlyFee * aggregates.months();
+    }
+
+    /**
+     * @param points the number of evenly spaced margins from fromMargin to toMargin, at least 2
+     */
+    public static CostCurve costCurve(UsageAggregates aggregates, double fromMargin, double toMargin, int points, double monthlyFee) {
+        if (points < 2) {
+            throw new IllegalArgumentException("A curve needs at least 2 points: " + points);
+        }
+        final var step = (toMargin - fromMargin) / (points - 1);
+        final var costs = new double[points];
+        for (int i = 0; i < points; ++i) {
+            costs[i] = spotCost(aggregates, fromMargin + i * step, monthlyFee);
+        }
+        return new CostCurve(fromMargin, step, costs);
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded worker pool for the calculations of the views, so that a calculation does not hold the session lock of its
+ * UI. The results are delivered back with {@code UI.access}, which needs push. When all the workers are busy and the
+ * queue is full new calculations are rejected instead of piling up. The statistics are logged after every
+ * calculation.
+ */
+@Slf4j
+public class CalculationExecutor {
+
+    public static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int QUEUE_CAPACITY = 32;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private static final LongAdder rejected = new LongAdder();
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+        final var thread = new Thread(runnable, "calculation-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param queueDepth    the calculations waiting for a worker
+     * @param maxQueueDepth the deepest the queue has been
+     * @param active        the calculations running
+     * @param completed     the calculations run so far
+     * @param rejected      the calculations rejected because the queue was full
+     */
+    public record Stats(int queueDepth, int maxQueueDepth, int active, long completed, long rejected) {
+    }
+
+    /**
+     * @return the calculation, cancelling it with interruption removes it from the queue or interrupts its worker
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public static Future<?> submit(Runnable calculation) {
+        final Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                final var startTime = System.nanoTime();
+                calculation.run();
+                log.info("calculation ran in " + Duration.ofNanos(System.nanoTime() - startTime).toMillis() + " ms, " + getStats());
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("calculation rejected, " + getStats());
+            throw e;
+        }
+        final var queueDepth = executor.getQueue().size();
+        if (queueDepth > maxQueueDepth.getAndAccumulate(queueDepth, Math::max)) {
+            log.info("calculation queue depth: " + queueDepth);
+        }
+        return future;
+    }
+
+    /**
+     * Removes the cancelled calculations from the queue, cancelling alone leaves them queued until a worker skips them.
+     */
+    public static void purge() {
+        executor.purge();
+    }
+
+    public static Stats getStats() {
+        return new Stats(executor.getQueue().size(), maxQueueDepth.get(), executor.getActiveCount(), executor.getCompletedTaskCount(), rejected.sum());
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.Contract;
+import com.vesanieminen.froniusvisualizer.services.model.HourlyJoin;
+import com.vesanieminen.froniusvisualizer.services.model.MarketSnapshot;
+import com.vesanieminen.froniusvisualizer.services.model.UsageAggregates;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ranks any number of contracts for a consumption series. The series is joined with the spot prices once into
+ * {@link UsageAggregates} and every contract is priced from those, so the work per contract does not depend on the
+ * number of hours.
+ */
+public class ContractComparisonService {
+
+    /**
+     * @param energyCost   € without the monthly fees
+     * @param fees         € of monthly fees over the months with consumption
+     * @param averagePrice c/kWh including the monthly fees
+     */
+    public record ContractCost(Contract contract, double energyCost, double fees, double totalCost, double averagePrice) {
+    }
+
+    /**
+     * @param costs the contracts from the cheapest to the most expensive one, empty if there is no consumption
+     */
+    public record Comparison(List<ContractCost> costs, UsageAggregates aggregates) {
+    }
+
+    public static Comparison compare(ConsumptionSeries consumption, Instant start, Instant end, List<? extends Contract> contracts) {
+        return compare(aggregate(consumption, consumption.lowerBound(start), consumption.upperBound(end)), contracts);
+    }
+
+    public static Comparison compare(UsageAggregates aggregates, List<? extends Contract> contracts) {
+        // without consumption there is no average price to rank the contracts by
+        if (aggregates.consumption() == 0) {
+            return new Comparison(List.of(), aggregates);
+        }
+        final var costs = new ArrayList<ContractCost>(contracts.size());
+        for (Contract contract : contracts) {
+            final var energyCost = contract.energyCost(aggregates) / 100;
+            final var fees = contract.monthlyFee() * aggregates.months();
+            final var totalCost = energyCost + fees;
+            costs.add(new ContractCost(contract, energyCost, fees, totalCost, totalCost / aggregates.consumption() * 100));
+        }
+        costs.sort(Comparator.comparingDouble(ContractCost::totalCost));
+        return new Comparison(List.copyOf(costs), aggregates);
+    }
+
+    /**
+     * Sums the consumption entries in [from, to) that have a spot price in one pass.
+     */
+    public static UsageAggregates aggregate(ConsumptionSeries consumption, int from, int to) {
+        final var accumulator = new AggregateAccumulator(PriceCalculatorService.getSpotPrices(), consumption);
+        final var coverage = HourlyJoin.join(consumption, from, to, accumulator.spot.series(), accumulator);
+        return new UsageAggregates(accumulator.consumptionTotal, accumulator.spotCost, accumulator.consumptionByHour, accumulator.months, coverage);
+    }
+
+    private static class AggregateAccumulator implements HourlyJoin.Visitor {
+        private final MarketSnapshot.SpotPrices spot;
+        private final ConsumptionSeries consumption;
+        private final double[] consumptionByHour = new double[24];
+        private double consumptionTotal;
+        private double spotCost;
+        private int months;
+        private int lastMonth = -1;
+
+        AggregateAccumulator(MarketSnapshot.SpotPrices spot, ConsumptionSeries consumption) {
+            this.spot = spot;
+            this.consumption = consumption;
+        }
+
+        @Override
+        public void match(int consumptionIndex, int spotIndex) {
+            final var value = consumption.value(consumptionIndex);
+            final var calendar = spot.calendar();
+            consumptionTotal += value;
+            spotCost += spot.priceWithVat(spotIndex) * value;
+            consumptionByHour[calendar.hour(spotIndex)] += value;
+            // the entries arrive in time order so a month is counted when it first appears
+            final var month = calendar.year(spotIndex) * 12 + calendar.month(spotIndex);
+            if (month != lastMonth) {
+                lastMonth = month;
+                ++months;
+            }
+        }
+    }
+
+}
@@ -1,52 +1,106 @@
 package com.vesanieminen.froniusvisualizer.services;
 
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.getAndWriteToFile2YearData;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.syncSpotData;
+import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.getLoadedSpotData;
 import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.updateSpotData;
-import static com.vesanieminen.froniusvisualizer.util.Utils.getSecondsToNextEvenHour;
-import static com.vesanieminen.froniusvisualizer.util.Utils.getSecondsToNext_13_50;
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
 
 @Slf4j
 public class Executor {
 
+    // One thread per source of a refresh, the requests to the same host are spaced by UpstreamClient
+    private static final AtomicInteger refreshThreadCount = new AtomicInteger();
+    private static final ExecutorService refreshExecutor = Executors.newFixedThreadPool(8, runnable -> {
+        final var thread = new Thread(runnable, "refresh-" + refreshThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+    private static final RefreshScheduler refreshScheduler = createRefreshScheduler();
+
     static {
-        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
-        executorService.schedule(Executor::updateAll, 0, TimeUnit.SECONDS);
-        executorService.scheduleAtFixedRate(Executor::updateAll, getSecondsToNextEvenHour(), TimeUnit.HOURS.toSeconds(1), TimeUnit.SECONDS);
-        executorService.scheduleAtFixedRate(NordpoolSpotService::updateNordpoolData, getSecondsToNext_13_50(), TimeUnit.DAYS.toSeconds(1), TimeUnit.SECONDS);
+        // Everything is loaded concurrently at startup, after that every source is refreshed on its own cadence
+        executorService.schedule(() -> refreshScheduler.start(updateAll()), 0, TimeUnit.SECONDS);
     }
 
-    private static void updateAll() {
+    private static List<RefreshPipeline.StageResult> updateAll() {
         log.info("Started updateAll");
-        final var startTime = System.currentTimeMillis();
-        NordpoolSpotService.updateNordpoolData();
-        try {
-            FingridService.updateWindEstimateData();
-            TimeUnit.MILLISECONDS.sleep(500);
-            FingridService.updateProductionEstimateData();
-            TimeUnit.MILLISECONDS.sleep(500);
-            FingridService.updateConsumptionEstimateData();
-            writeMarketPriceFile();
-            updateSpotData();
-            TimeUnit.MILLISECONDS.sleep(500);
-            FingridService.updateRealtimeData();
-            SpotHintaService.updateData();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        log.info("Ended updateAll in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
-    }
-
-    private static void writeMarketPriceFile() {
-        //getAndWriteToFile();
-        getAndWriteToFile2YearData();
+        return createRefreshPipeline().run(refreshExecutor);
+    }
+
+    private static RefreshScheduler createRefreshScheduler() {
+        final var hourly = RefreshScheduler.Cadence.every(Duration.ofHours(1), Duration.ZERO);
+        // the day-ahead prices are published at about 12:45 CET, sahkotin.fi has them a few minutes later
+        return new RefreshScheduler(executorService, Clock.systemUTC())
+                .source("nordpool", RefreshScheduler.Cadence.daily(LocalTime.of(13, 45), fiZoneID, Duration.ofHours(1), Duration.ofMinutes(5)),
+                        NordpoolSpotService::updateNordpoolData, Executor::hasNordpoolPricesOfNextDay)
+                .source("fingrid-wind-estimate", hourly, FingridService::updateWindEstimateData)
+                .source("fingrid-production-estimate", hourly, FingridService::updateProductionEstimateData)
+                .source("fingrid-consumption-estimate", hourly, FingridService::updateConsumptionEstimateData)
+                .source("spot", RefreshScheduler.Cadence.daily(LocalTime.of(13, 50), fiZoneID, Duration.ofHours(2), Duration.ofMinutes(5)),
+                        () -> updateSpotData(syncSpotData(getLoadedSpotData())), Executor::hasSpotPricesOfNextDay)
+                // corrections older than the incremental overlap are picked up by downloading the whole history weekly
+                .source("spot-full-refresh", RefreshScheduler.Cadence.every(Duration.ofDays(7), Duration.ofHours(3)), () -> {
+                    PakastinSpotService.requestFullRefresh();
+                    updateSpotData(syncSpotData(getLoadedSpotData()));
+                })
+                // the realtime data is updated every 3 minutes
+                .source("fingrid-realtime", RefreshScheduler.Cadence.every(Duration.ofMinutes(3), Duration.ofSeconds(30)), FingridService::updateRealtimeData)
+                .source("spothinta", hourly, SpotHintaService::updateData);
     }
 
+    private static boolean hasNordpoolPricesOfNextDay(Instant publication) {
+        final var prices = NordpoolSpotService.getLatest7DaysList();
+        final var nextDay = startOfNextDay(publication).toEpochMilli();
+        return prices != null && prices.stream().anyMatch(price -> price.time() >= nextDay);
+    }
+
+    private static boolean hasSpotPricesOfNextDay(Instant publication) {
+        final var series = getLoadedSpotData();
+        return series != null && series.size() > 0 && !series.end().isBefore(startOfNextDay(publication));
+    }
+
+    private static Instant startOfNextDay(Instant time) {
+        return time.atZone(fiZoneID).toLocalDate().plusDays(1).atStartOfDay(fiZoneID).toInstant();
+    }
+
+    /**
+     * @return the refresh status of every upstream source
+     */
+    public static List<RefreshScheduler.SourceStatus> getRefreshStatus() {
+        return refreshScheduler.getStatus();
+    }
+
+    private static RefreshPipeline createRefreshPipeline() {
+        final var spotData = new AtomicReference<SpotPriceSeries>();
+        return RefreshPipeline.builder()
+                .stage("nordpool", NordpoolSpotService::updateNordpoolData)
+                .stage("fingrid-wind-estimate", FingridService::updateWindEstimateData)
+                .stage("fingrid-production-estimate", FingridService::updateProductionEstimateData)
+                .stage("fingrid-consumption-estimate", FingridService::updateConsumptionEstimateData)
+                // the synced prices are written to the spot price file before they are published
+                .stage("spot-file", () -> spotData.set(syncSpotData(getLoadedSpotData())))
+                .stage("spot", () -> updateSpotData(spotData.get()), "spot-file")
+                .stage("fingrid-realtime", FingridService::updateRealtimeData)
+                .stage("spothinta", SpotHintaService::updateData)
+                .build();
+    }
 
     public static void init() {
         // NOP
@@ -1,7 +1,7 @@
 package com.vesanieminen.froniusvisualizer.services;
 
-import com.fatboyindustrial.gsonjavatime.Converters;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.opencsv.CSVWriter;
 import com.vesanieminen.froniusvisualizer.services.model.FingridLiteResponse;
 import com.vesanieminen.froniusvisualizer.services.model.FingridRealtimeResponse;
@@ -10,17 +10,14 @@ import com.vesanieminen.froniusvisualizer.util.Utils;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -76,12 +73,7 @@ public class FingridService {
         }
     }
 
-    private static FingridRealtimeResponse cachedFingridRealtimeResponse;
-    public static LocalDateTime fingridDataUpdated;
     private static FingridRealtimeResponse cachedFingridRealtimeResponseForMonth;
-    private static List<FingridLiteResponse> cachedWindEstimateResponses;
-    private static List<FingridLiteResponse> cachedProductionEstimateResponses;
-    private static List<FingridLiteResponse> cachedConsumptionEstimateResponses;
 
     // The final target for the basic fingrid query is:
     // https://www.fingrid.fi/api/graph/power-system-production?start=2022-10-04&end=2022-10-10
@@ -93,36 +85,68 @@ public class FingridService {
     private static final String fingridHourlyUrlPostfix = "/events/json?";
 
     public static void updateRealtimeData() {
-        final var newFingridRealtimeResponse = runRealtimeDataQuery(createFingridRealtimeQuery());
+        final var updated = getCurrentTimeWithHourPrecision();
+        // Keep every 20th 3min sample, i.e. one per hour
+        final var newFingridRealtimeResponse = runRealtimeDataQuery(createFingridRealtimeQuery(updated), 20);
         if (!newFingridRealtimeResponse.isValid()) {
             return;
         }
-        cachedFingridRealtimeResponse = newFingridRealtimeResponse;
-        cachedFingridRealtimeResponse.HydroPower = keepEveryNthItem(cachedFingridRealtimeResponse.HydroPower, 20);
-        cachedFingridRealtimeResponse.NuclearPower = keepEveryNthItem(cachedFingridRealtimeResponse.NuclearPower, 20);
-        cachedFingridRealtimeResponse.WindPower = keepEveryNthItem(cachedFingridRealtimeResponse.WindPower, 20);
-        cachedFingridRealtimeResponse.SolarPower = keepEveryNthItem(cachedFingridRealtimeResponse.SolarPower, 20);
-        cachedFingridRealtimeResponse.Consumption = keepEveryNthItem(cachedFingridRealtimeResponse.Consumption, 20);
-        cachedFingridRealtimeResponse.NetImportExport = keepEveryNthItem(cachedFingridRealtimeResponse.NetImportExport, 20);
+        MarketData.publish(snapshot -> snapshot.withFingridRealtime(newFingridRealtimeResponse, updated));
     }
 
     public static FingridRealtimeResponse runRealtimeDataQuery(String query) {
-        final HttpRequest request;
-        final HttpResponse<String> response;
-        try {
-            request = HttpRequest.newBuilder().uri(new URI(query)).GET().build();
-            response = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build().send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (URISyntaxException | IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+        return runRealtimeDataQuery(query, 1);
+    }
+
+    /**
+     * @param n only every nth sample of each series is decoded, the others are skipped in the stream
+     */
+    public static FingridRealtimeResponse runRealtimeDataQuery(String query, int n) {
+        return StreamingJson.fetch("fingrid-realtime", query, reader -> decodeRealtimeResponse(reader, n));
+    }
+
+    public static FingridRealtimeResponse decodeRealtimeResponse(JsonReader reader, int n) throws IOException {
+        final var dataAdapter = JsonCodecs.gson.getAdapter(FingridRealtimeResponse.Data.class);
+        final var response = new FingridRealtimeResponse();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final var name = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            final var data = new ArrayList<FingridRealtimeResponse.Data>();
+            reader.beginArray();
+            for (int i = 0; reader.hasNext(); ++i) {
+                if (i % n == 0) {
+                    data.add(dataAdapter.read(reader));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endArray();
+            final var list = Collections.unmodifiableList(data);
+            switch (name) {
+                case "HydroPower" -> response.HydroPower = list;
+                case "NuclearPower" -> response.NuclearPower = list;
+                case "WindPower" -> response.WindPower = list;
+                case "SolarPower" -> response.SolarPower = list;
+                case "Consumption" -> response.Consumption = list;
+                case "NetImportExport" -> response.NetImportExport = list;
+                default -> {
+                }
+            }
         }
-        final var gson = Converters.registerAll(new GsonBuilder()).create();
-        return gson.fromJson(response.body(), FingridRealtimeResponse.class);
+        reader.endObject();
+        return response;
     }
 
     public static String createFingridRealtimeQuery() {
+        return createFingridRealtimeQuery(getCurrentTimeWithHourPrecision());
+    }
+
+    private static String createFingridRealtimeQuery(LocalDateTime now) {
         Map<String, String> requestParams = new HashMap<>();
-        final var now = getCurrentTimeWithHourPrecision();
-        fingridDataUpdated = now;
         // Nordpool gives data for the next day at 14:00. Before that we need to retrieve 6 days back and after 5 to match the amount of Fingrid and Nordpool history
         var daysBack = now.getHour() < 14 ? 6 : 5;
         requestParams.put("start", createFingridDateTimeString(now.minusDays(daysBack)));
@@ -149,58 +173,53 @@ public class FingridService {
         return IntStream.range(0, input.size()).filter(item -> item % n == 0).mapToObj(input::get).toList();
     }
 
-    public static FingridRealtimeResponse getLatest7Days() throws URISyntaxException, IOException, InterruptedException {
-        return cachedFingridRealtimeResponse;
+    public static FingridRealtimeResponse getLatest7Days() {
+        return MarketData.get().fingridRealtime();
+    }
+
+    public static LocalDateTime getFingridDataUpdated() {
+        return MarketData.get().fingridDataUpdated();
     }
 
     public static void updateWindEstimateData() {
         final var start = getCurrentTimeWithHourPrecision();
-        final var newWindEstimateResponses = runQuery(createHourlyQuery(QueryType.WIND_PREDICTION, start, start.plusDays(2)));
+        final var newWindEstimateResponses = runQuery("fingrid-wind-estimate", createHourlyQuery(QueryType.WIND_PREDICTION, start, start.plusDays(2)));
         if (newWindEstimateResponses.size() > 0) {
-            cachedWindEstimateResponses = newWindEstimateResponses;
+            MarketData.publish(snapshot -> snapshot.withWindEstimate(newWindEstimateResponses));
         }
     }
 
     public static void updateProductionEstimateData() {
         final var start = getCurrentTimeWithHourPrecision();
-        final var newProductionEstimateResponses = runQuery(createHourlyQuery(QueryType.PRODUCTION_ESTIMATE, start, start.plusDays(2)));
+        final var newProductionEstimateResponses = runQuery("fingrid-production-estimate", createHourlyQuery(QueryType.PRODUCTION_ESTIMATE, start, start.plusDays(2)));
         if (newProductionEstimateResponses.size() > 0) {
-            cachedProductionEstimateResponses = newProductionEstimateResponses;
+            MarketData.publish(snapshot -> snapshot.withProductionEstimate(newProductionEstimateResponses));
         }
     }
 
     public static void updateConsumptionEstimateData() {
         final var start = getCurrentTimeWithHourPrecision();
-        final var newConsumptionEstimateResponses = runQuery(createHourlyQuery(QueryType.CONSUMPTION_ESTIMATE, start, start.plusDays(2)));
+        final var newConsumptionEstimateResponses = runQuery("fingrid-consumption-estimate", createHourlyQuery(QueryType.CONSUMPTION_ESTIMATE, start, start.plusDays(2)));
         if (newConsumptionEstimateResponses.size() > 0) {
-            cachedConsumptionEstimateResponses = keepEveryNthItem(newConsumptionEstimateResponses, 12);
+            MarketData.publish(snapshot -> snapshot.withConsumptionEstimate(keepEveryNthItem(newConsumptionEstimateResponses, 12)));
         }
     }
 
-    public static List<FingridLiteResponse> runQuery(String query) {
-        final var apiKey = getFingridAPIKey();
-        final HttpRequest request;
-        HttpResponse<String> response;
-        try {
-            request = HttpRequest.newBuilder().uri(new URI(query)).GET().header("x-api-key", apiKey).build();
-            response = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build().send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (URISyntaxException | IOException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        final var gson = Converters.registerAll(new GsonBuilder()).create();
-        return Arrays.stream(gson.fromJson(response.body(), FingridLiteResponse[].class)).toList();
+    public static List<FingridLiteResponse> runQuery(String source, String query) {
+        final var responses = StreamingJson.fetch(source, query, Map.of("x-api-key", getFingridAPIKey()), StreamingJson.decoderOf(FingridLiteResponse[].class));
+        return Arrays.stream(responses).toList();
     }
 
     public static List<FingridLiteResponse> getWindEstimate() {
-        return cachedWindEstimateResponses;
+        return MarketData.get().windEstimate();
     }
 
     public static List<FingridLiteResponse> getProductionEstimate() {
-        return cachedProductionEstimateResponses;
+        return MarketData.get().productionEstimate();
     }
 
     public static List<FingridLiteResponse> getConsumptionEstimate() {
-        return cachedConsumptionEstimateResponses;
+        return MarketData.get().consumptionEstimate();
     }
 
     public static String createHourlyQuery(QueryType queryType, LocalDateTime start, LocalDateTime end) {
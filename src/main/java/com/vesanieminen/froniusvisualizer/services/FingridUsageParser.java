@@ -0,0 +1,284 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.util.IsoDateTimes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.FingridUsageData;
+
+/**
+ * Byte-level parser of the Fingrid Datahub consumption and production CSV exports. The bytes are fed in chunks of any
+ * size and the rows are parsed straight into primitive arrays, without decoding the lines into strings.
+ * <p>
+ * The column layout is detected from the header: the export had seven columns until Fingrid added one before the
+ * start time, and the decimal separator changed from , to . on 2023-01-16. The rows after the first one with the
+ * quality MISSING are ignored. The resolution of the data is the shortest one in the Resoluutio column, PT1H or PT15M.
+ */
+public class FingridUsageParser {
+
+    private static final byte SEPARATOR = ';';
+    private static final byte QUOTE = '"';
+    private static final byte[] MISSING = "MISSING".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    // Values with more digits may not be exact in a long or a double and are left to Double.parseDouble
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private final int[] fieldStarts = new int[16];
+    private final int[] fieldEnds = new int[16];
+    private byte[] carry = new byte[256];
+    private int carryLength = 0;
+    private boolean hasHeader = false;
+    private boolean isFinished = false;
+    private int startTimeColumn;
+    private int quantityColumn;
+    private int qualityColumn;
+    private int resolutionColumn;
+    private byte[] lastResolution = new byte[0];
+    private Duration resolution;
+    private long[] epochSeconds = new long[1024];
+    private double[] values = new double[1024];
+    private int size = 0;
+    private int lineNumber = 0;
+
+    public static FingridUsageData parse(InputStream inputStream) throws IOException, ParseException {
+        final var parser = new FingridUsageParser();
+        final var buffer = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) >= 0) {
+            parser.feed(buffer, 0, read);
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Parses the complete lines of the chunk and keeps the incomplete last line for the next chunk.
+     */
+    public void feed(byte[] bytes, int offset, int length) throws ParseException {
+        final var end = offset + length;
+        var lineStart = offset;
+        if (carryLength > 0) {
+            final var newline = indexOf(bytes, (byte) '\n', offset, end);
+            appendToCarry(bytes, offset, (newline < 0 ? end : newline) - offset);
+            if (newline < 0) {
+                return;
+            }
+            parseLine(carry, 0, carryLength);
+            carryLength = 0;
+            lineStart = newline + 1;
+        }
+        int newline;
+        while ((newline = indexOf(bytes, (byte) '\n', lineStart, end)) >= 0) {
+            parseLine(bytes, lineStart, newline);
+            lineStart = newline + 1;
+        }
+        appendToCarry(bytes, lineStart, end - lineStart);
+    }
+
+    /**
+     * Parses the last line if it has no line break and returns the parsed series.
+     */
+    public FingridUsageData finish() throws ParseException {
+        if (carryLength > 0) {
+            parseLine(carry, 0, carryLength);
+            carryLength = 0;
+        }
+        final var series = ConsumptionSeries.of(Arrays.copyOf(epochSeconds, size), Arrays.copyOf(values, size));
+        return new FingridUsageData(series, resolution != null ? resolution : Duration.ofHours(1));
+    }
+
+    private void appendToCarry(byte[] bytes, int offset, int length) {
+        if (carryLength + length > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(carry.length * 2, carryLength + length));
+        }
+        System.arraycopy(bytes, offset, carry, carryLength, length);
+        carryLength += length;
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void parseLine(byte[] bytes, int start, int end) throws ParseException {
+        ++lineNumber;
+        if (end > start && bytes[end - 1] == '\r') {
+            --end;
+        }
+        if (isFinished || start == end) {
+            return;
+        }
+        if (!hasHeader) {
+            parseHeader(bytes, start, end);
+            return;
+        }
+        final var fields = split(bytes, start, end);
+        if (fields <= qualityColumn) {
+            throw new ParseException("Line " + lineNumber + " has " + fields + " columns", 0);
+        }
+        // in case the Fingrid csv data has rows that contain: "null;MISSING", skip them and everything after them
+        if (equals(bytes, fieldStarts[qualityColumn], fieldEnds[qualityColumn], MISSING)) {
+            isFinished = true;
+            return;
+        }
+        if (size == epochSeconds.length) {
+            epochSeconds = Arrays.copyOf(epochSeconds, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        if (resolutionColumn < fields) {
+            parseResolution(bytes, fieldStarts[resolutionColumn], fieldEnds[resolutionColumn]);
+        }
+        epochSeconds[size] = parseEpochSecond(bytes, fieldStarts[startTimeColumn], fieldEnds[startTimeColumn]);
+        values[size] = parseDecimal(bytes, fieldStarts[quantityColumn], fieldEnds[quantityColumn]);
+        ++size;
+    }
+
+    private void parseHeader(byte[] bytes, int start, int end) {
+        if (end - start >= BOM.length && equals(bytes, start, start + BOM.length, BOM)) {
+            start += BOM.length;
+        }
+        final var columns = Arrays.stream(new String(bytes, start, end - start, StandardCharsets.UTF_8).split(String.valueOf((char) SEPARATOR), -1))
+                .map(column -> column.replace("\"", "").trim())
+                .toList();
+        final var named = columns.indexOf("Alkuaika");
+        final var namedResolution = columns.indexOf("Resoluutio");
+        startTimeColumn = named >= 0 ? named : columns.size() == 8 ? 5 : 4;
+        resolutionColumn = namedResolution >= 0 ? namedResolution : 2;
+        quantityColumn = startTimeColumn + 1;
+        qualityColumn = startTimeColumn + 2;
+        hasHeader = true;
+    }
+
+    /**
+     * Stores the bounds of the fields, without the quotes around them, and returns the number of fields.
+     */
+    private int split(byte[] bytes, int start, int end) {
+        var fields = 0;
+        var fieldStart = start;
+        for (int i = start; i <= end && fields < fieldStarts.length; ++i) {
+            if (i == end || bytes[i] == SEPARATOR) {
+                final var isQuoted = i - fieldStart >= 2 && bytes[fieldStart] == QUOTE && bytes[i - 1] == QUOTE;
+                fieldStarts[fields] = isQuoted ? fieldStart + 1 : fieldStart;
+                fieldEnds[fields++] = isQuoted ? i - 1 : i;
+                fieldStart = i + 1;
+            }
+        }
+        return fields;
+    }
+
+    // Only a resolution that differs from the one on the previous line is decoded
+    private void parseResolution(byte[] bytes, int start, int end) throws ParseException {
+        if (start == end || equals(bytes, start, end, lastResolution)) {
+            return;
+        }
+        final var text = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        final Duration lineResolution;
+        try {
+            lineResolution = Duration.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new ParseException("Invalid resolution on line " + lineNumber + ": " + text, 0);
+        }
+        if (lineResolution.isNegative() || lineResolution.isZero() || lineResolution.compareTo(Duration.ofHours(1)) > 0) {
+            throw new ParseException("Unsupported resolution on line " + lineNumber + ": " + text, 0);
+        }
+        lastResolution = Arrays.copyOfRange(bytes, start, end);
+        if (resolution == null || lineResolution.compareTo(resolution) < 0) {
+            resolution = lineResolution;
+        }
+    }
+
+    private static boolean equals(byte[] bytes, int start, int end, byte[] expected) {
+        return Arrays.equals(bytes, start, end, expected, 0, expected.length);
+    }
+
+    /**
+     * Reads yyyy-MM-ddTHH:mm:ssZ at fixed positions and leaves other formats to {@link IsoDateTimes}. A fraction of
+     * a second is dropped.
+     */
+    private long parseEpochSecond(byte[] bytes, int start, int end) throws ParseException {
+        if (end - start == 20 && bytes[start + 4] == '-' && bytes[start + 7] == '-' && bytes[start + 10] == 'T'
+                && bytes[start + 13] == ':' && bytes[start + 16] == ':' && bytes[start + 19] == 'Z') {
+            final var year = digits(bytes, start, 4);
+            final var month = digits(bytes, start + 5, 2);
+            final var day = digits(bytes, start + 8, 2);
+            final var hour = digits(bytes, start + 11, 2);
+            final var minute = digits(bytes, start + 14, 2);
+            final var second = digits(bytes, start + 17, 2);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= Month.of(month).length(Year.isLeap(year))
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59) {
+                return IsoDateTimes.epochDay(year, month, day) * 86400 + hour * 3600L + minute * 60L + second;
+            }
+        }
+        final var text = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        try {
+            return IsoDateTimes.parseInstant(text).getEpochSecond();
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new ParseException("Invalid start time on line " + lineNumber + ": " + text, 0);
+        }
+    }
+
+    private static int digits(byte[] bytes, int from, int count) {
+        var value = 0;
+        for (int i = from; i < from + count; ++i) {
+            final var digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Reads a decimal number with either . or , as the separator. Up to 15 significant digits the result is the
+     * correctly rounded double, the same as {@link Double#parseDouble(String)} returns.
+     */
+    private double parseDecimal(byte[] bytes, int start, int end) throws ParseException {
+        var index = start;
+        final var isNegative = index < end && bytes[index] == '-';
+        if (isNegative) {
+            ++index;
+        }
+        var mantissa = 0L;
+        var digits = 0;
+        var fractionDigits = -1;
+        for (; index < end; ++index) {
+            final var b = bytes[index];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                ++digits;
+                if (fractionDigits >= 0) {
+                    ++fractionDigits;
+                }
+            } else if ((b == ',' || b == '.') && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (index == end && digits > 0 && digits <= MAX_FAST_DIGITS) {
+            final var value = mantissa / POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+            return isNegative ? -value : value;
+        }
+        final var text = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        try {
+            return Double.parseDouble(text.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid quantity on line " + lineNumber + ": " + text, 0);
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.fatboyindustrial.gsonjavatime.Converters;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.vesanieminen.froniusvisualizer.services.model.FingridLiteResponse;
+import com.vesanieminen.froniusvisualizer.services.model.FingridRealtimeResponse;
+import com.vesanieminen.froniusvisualizer.services.model.PakastinResponse;
+import com.vesanieminen.froniusvisualizer.services.model.SpotHintaResponse;
+import com.vesanieminen.froniusvisualizer.util.IsoDateTimes;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+/**
+ * The one {@link Gson} instance of the application. The models of the large responses are read with hand-written
+ * adapters and {@link IsoDateTimes} instead of reflection and the gson-javatime converters, the other models still
+ * go through reflection.
+ */
+public class JsonCodecs {
+
+    public static final Gson gson = Converters.registerAll(new GsonBuilder())
+            .registerTypeAdapter(PakastinResponse.Price.class, new PakastinPriceAdapter().nullSafe())
+            .registerTypeAdapter(FingridLiteResponse.class, new FingridLiteAdapter().nullSafe())
+            .registerTypeAdapter(FingridRealtimeResponse.Data.class, new FingridRealtimeDataAdapter().nullSafe())
+            .registerTypeAdapter(SpotHintaResponse.class, new SpotHintaAdapter().nullSafe())
+            .create();
+
+    public static Instant nextInstant(JsonReader reader) throws IOException {
+        return reader.peek() == JsonToken.NULL ? skipNull(reader) : IsoDateTimes.parseInstant(reader.nextString());
+    }
+
+    public static ZonedDateTime nextZonedDateTime(JsonReader reader) throws IOException {
+        return reader.peek() == JsonToken.NULL ? skipNull(reader) : IsoDateTimes.parseZonedDateTime(reader.nextString());
+    }
+
+    /**
+     * @return the number or the default value if it is null, as with a primitive field bound by reflection
+     */
+    public static double nextDouble(JsonReader reader, double defaultValue) throws IOException {
+        return reader.peek() == JsonToken.NULL ? skipNull(reader, defaultValue) : reader.nextDouble();
+    }
+
+    private static <T> T skipNull(JsonReader reader) throws IOException {
+        reader.nextNull();
+        return null;
+    }
+
+    private static double skipNull(JsonReader reader, double defaultValue) throws IOException {
+        reader.nextNull();
+        return defaultValue;
+    }
+
+    private static void write(JsonWriter writer, Object value) throws IOException {
+        if (value == null) {
+            writer.nullValue();
+        } else {
+            writer.value(value.toString());
+        }
+    }
+
+    private static class PakastinPriceAdapter extends TypeAdapter<PakastinResponse.Price> {
+        @Override
+        public void write(JsonWriter writer, PakastinResponse.Price price) throws IOException {
+            writer.beginObject().name("value").value(price.value).name("date");
+            JsonCodecs.write(writer, price.date);
+            writer.endObject();
+        }
+
+        @Override
+        public PakastinResponse.Price read(JsonReader reader) throws IOException {
+            final var price = new PakastinResponse.Price();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "value" -> price.value = nextDouble(reader, price.value);
+                    case "date" -> price.date = nextInstant(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return price;
+        }
+    }
+
+    private static class FingridLiteAdapter extends TypeAdapter<FingridLiteResponse> {
+        @Override
+        public void write(JsonWriter writer, FingridLiteResponse response) throws IOException {
+            writer.beginObject().name("value").value(response.value).name("start_time");
+            JsonCodecs.write(writer, response.start_time == null ? null : response.start_time.toInstant());
+            writer.endObject();
+        }
+
+        @Override
+        public FingridLiteResponse read(JsonReader reader) throws IOException {
+            final var response = new FingridLiteResponse();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "value" -> response.value = nextDouble(reader, response.value);
+                    case "start_time" -> {
+                        final var startTime = nextInstant(reader);
+                        response.start_time = startTime == null ? null : Date.from(startTime);
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return response;
+        }
+    }
+
+    private static class FingridRealtimeDataAdapter extends TypeAdapter<FingridRealtimeResponse.Data> {
+        @Override
+        public void write(JsonWriter writer, FingridRealtimeResponse.Data data) throws IOException {
+            writer.beginObject().name("value").value(data.value).name("start_time");
+            JsonCodecs.write(writer, data.start_time);
+            writer.endObject();
+        }
+
+        @Override
+        public FingridRealtimeResponse.Data read(JsonReader reader) throws IOException {
+            final var data = new FingridRealtimeResponse.Data();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "value" -> data.value = nextDouble(reader, data.value);
+                    case "start_time" -> data.start_time = nextZonedDateTime(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return data;
+        }
+    }
+
+    private static class SpotHintaAdapter extends TypeAdapter<SpotHintaResponse> {
+        @Override
+        public void write(JsonWriter writer, SpotHintaResponse response) throws IOException {
+            writer.beginObject().name("TimeStamp");
+            JsonCodecs.write(writer, response.TimeStamp);
+            writer.name("Temperature").value(response.Temperature).endObject();
+        }
+
+        @Override
+        public SpotHintaResponse read(JsonReader reader) throws IOException {
+            final var response = new SpotHintaResponse();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "TimeStamp" -> response.TimeStamp = nextZonedDateTime(reader);
+                    case "Temperature" -> response.Temperature = nextDouble(reader, response.Temperature);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return response;
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.vesanieminen.froniusvisualizer.services.model.MarketSnapshot;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds the current {@link MarketSnapshot}. Readers take the snapshot once and read everything from it without locks.
+ * Writers are serialized and replace the snapshot with a single volatile write.
+ */
+public class MarketData {
+
+    private static volatile MarketSnapshot snapshot = MarketSnapshot.EMPTY;
+
+    public static MarketSnapshot get() {
+        return snapshot;
+    }
+
+    /**
+     * @param update creates the new snapshot from the current one, other writers wait until it returns
+     * @return the published snapshot
+     */
+    public static synchronized MarketSnapshot publish(UnaryOperator<MarketSnapshot> update) {
+        snapshot = update.apply(snapshot);
+        return snapshot;
+    }
+
+}
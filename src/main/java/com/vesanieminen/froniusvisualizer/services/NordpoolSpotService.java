@@ -1,59 +1,43 @@
 package com.vesanieminen.froniusvisualizer.services;
 
-import com.fatboyindustrial.gsonjavatime.Converters;
-import com.google.gson.GsonBuilder;
 import com.vesanieminen.froniusvisualizer.services.model.NordpoolPrice;
 import com.vesanieminen.froniusvisualizer.services.model.NordpoolResponse;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.text.NumberFormat;
 import java.text.ParseException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
 import static com.vesanieminen.froniusvisualizer.util.Utils.dateTimeFormatter;
 import static com.vesanieminen.froniusvisualizer.util.Utils.nordpoolZoneID;
-import static com.vesanieminen.froniusvisualizer.util.Utils.numberFormat;
 
 @Slf4j
 public class NordpoolSpotService {
 
-    private static NordpoolResponse nordpoolResponse;
     public static final String nordPoolSpotFile = "nordpool-spot-data.json";
 
     private static final String url = "https://www.nordpoolspot.com/api/marketdata/page/35?currency=,,EUR,EUR";
-    private static List<NordpoolPrice> nordpoolPrices;
-    private static List<Map.Entry<Instant, Double>> nordpoolPriceMap;
 
     public static void updateNordpoolData() {
-        final HttpRequest request;
-        final HttpResponse<String> response;
-        try {
-            request = HttpRequest.newBuilder().uri(new URI(url)).GET().build();
-            response = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build().send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (URISyntaxException | IOException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        final var gson = Converters.registerAll(new GsonBuilder()).create();
-        var newNordpoolResponse = gson.fromJson(response.body(), NordpoolResponse.class);
-        if (newNordpoolResponse.isValid()) {
-            nordpoolResponse = newNordpoolResponse;
-            nordpoolPrices = toPriceList(nordpoolResponse);
-        }
+        // the page changes once a day, an unchanged page is not parsed again
+        ResponseCache.fetch("nordpool", url, StreamingJson.decoderOf(NordpoolResponse.class)).ifPresent(newNordpoolResponse -> {
+            if (newNordpoolResponse.isValid()) {
+                final var newNordpoolPrices = toPriceList(newNordpoolResponse);
+                MarketData.publish(snapshot -> snapshot.withNordpool(newNordpoolResponse, newNordpoolPrices));
+            }
+        });
     }
 
     public static NordpoolResponse getLatest7Days() {
-        return nordpoolResponse;
+        return MarketData.get().nordpoolResponse();
     }
 
     public static void writeFile(HttpResponse<String> response) {
@@ -67,6 +51,8 @@ public class NordpoolSpotService {
 
     private static List<NordpoolPrice> toPriceList(NordpoolResponse nordpoolResponse) {
         final var nordpoolPrices = new ArrayList<NordpoolPrice>();
+        // NumberFormat is not thread-safe
+        final var numberFormat = NumberFormat.getInstance(Locale.FRANCE);
         final var rows = nordpoolResponse.data.Rows;
         int columnIndex = 6;
         while (columnIndex >= 0) {
@@ -90,7 +76,7 @@ public class NordpoolSpotService {
     }
 
     public static List<NordpoolPrice> getLatest7DaysList() {
-        return nordpoolPrices;
+        return MarketData.get().nordpoolPrices();
     }
 
 }
@@ -1,17 +1,18 @@
 package com.vesanieminen.froniusvisualizer.services;
 
-import com.fatboyindustrial.gsonjavatime.Converters;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.vesanieminen.froniusvisualizer.services.model.PakastinResponse;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import com.vesanieminen.froniusvisualizer.util.IsoDateTimes;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.net.http.HttpResponse;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -32,6 +33,13 @@ public class PakastinSpotService {
     public static final String pakastinFile = "pakastin.json";
     public static final String pakastin2YearFile = "pakastin-2-year.json";
     public static final String pakastinTempFile = "src/main/resources/data/pakastin/spot.json";
+    public static final String spotPriceStoreFile = "pakastin-spot.bin";
+    // Hours before the last stored hour that are fetched again to pick up corrections
+    public static final int incrementalOverlapHours = 48;
+    private static final Instant spotDataHistoryStart = getStartOfDay(2021, 1, 1);
+    private static volatile boolean isFullRefreshRequested = false;
+    private static volatile Path spotPriceStore = Path.of(spotPriceStoreFile);
+    private static final MathContext fifteenDigits = new MathContext(15);
 
     // Format with timestamps
     // https://pakastin.fi/hinnat/prices?start=2022-10-01T00:00:00.000Z&end=2022-10-31T23:59:00.000Z
@@ -44,13 +52,11 @@ public class PakastinSpotService {
     }
 
     public static PakastinResponse runAndMapToResponse(String query) {
-        final HttpResponse<String> response = runQuery(query);
-        return mapToResponse(response.body());
+        return StreamingJson.fetch("spot", query, StreamingJson.decoderOf(PakastinResponse.class));
     }
 
     public static PakastinResponse mapToResponse(String body) {
-        final var gson = Converters.registerAll(new GsonBuilder()).create();
-        return gson.fromJson(body, PakastinResponse.class);
+        return JsonCodecs.gson.fromJson(body, PakastinResponse.class);
     }
 
     public static HttpResponse<String> runQuery() {
@@ -58,12 +64,10 @@ public class PakastinSpotService {
     }
 
     private static HttpResponse<String> runQuery(String query) {
-        final HttpRequest request;
         final HttpResponse<String> response;
         try {
-            request = HttpRequest.newBuilder().uri(new URI(query)).GET().build();
-            response = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build().send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (URISyntaxException | IOException | InterruptedException e) {
+            response = UpstreamClient.get(query);
+        } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
         return response;
@@ -83,6 +87,48 @@ public class PakastinSpotService {
         return runAndMapToResponse(query).prices;
     }
 
+    /**
+     * Like {@link #get} but decodes the response straight into a series without creating a price object per hour.
+     */
+    public static SpotPriceSeries getSeries(Instant start, Instant end) {
+        return StreamingJson.fetch("spot", createQuery(start, end), PakastinSpotService::decodeSeries);
+    }
+
+    /**
+     * Reads a Pakastin response {"prices": [{"date": "...", "value": 12.3}, ...]} with the values in €/MWh.
+     */
+    public static SpotPriceSeries decodeSeries(JsonReader reader) throws IOException {
+        final var builder = new SpotPriceSeries.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("prices")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                long epochHour = Long.MIN_VALUE;
+                double value = Double.NaN;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "date" -> epochHour = SpotPriceSeries.toEpochHour(IsoDateTimes.parseInstant(reader.nextString()));
+                        case "value" -> value = reader.nextDouble();
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (epochHour == Long.MIN_VALUE || Double.isNaN(value)) {
+                    throw new IOException("Spot price without a date or value at " + reader.getPath());
+                }
+                builder.add(epochHour, value / 10);
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
     public static String createQuery(Instant start, Instant end) {
         Map<String, String> requestParams = new HashMap<>();
         requestParams.put("start", start.toString());
@@ -100,7 +146,7 @@ public class PakastinSpotService {
     }
 
     public static void getAndWriteToFile2YearData() {
-        final var stringHttpResponse = runQuery(createQuery(getStartOfDay(2021, 1, 1), Instant.now().plus(10, ChronoUnit.DAYS)));
+        final var stringHttpResponse = runQuery(createQuery(spotDataHistoryStart, Instant.now().plus(10, ChronoUnit.DAYS)));
         try {
             log.info("Writing file: " + Paths.get(pakastin2YearFile).getFileName());
             Files.write(Paths.get(pakastin2YearFile), stringHttpResponse.body().getBytes());
@@ -109,4 +155,118 @@ public class PakastinSpotService {
         }
     }
 
+    public static SpotPriceSeries readSpotDataFile() throws IOException {
+        return StreamingJson.read(Path.of(pakastin2YearFile), PakastinSpotService::decodeSeries);
+    }
+
+    /**
+     * Loads the stored spot prices from the binary store. If there is none yet, the JSON file of the earlier versions
+     * is imported and written to the binary store.
+     */
+    public static SpotPriceSeries loadSpotData() throws IOException {
+        final var store = spotPriceStore;
+        if (Files.exists(store)) {
+            return SpotPriceSegmentFile.read(store);
+        }
+        final var series = readSpotDataFile();
+        SpotPriceSegmentFile.write(series, store);
+        log.info("Migrated " + pakastin2YearFile + " to " + store);
+        return series;
+    }
+
+    public static void writeSpotDataFile(SpotPriceSeries series, Path path) throws IOException {
+        try (var writer = new JsonWriter(Files.newBufferedWriter(path))) {
+            writer.beginObject().name("prices").beginArray();
+            for (int i = 0; i < series.size(); ++i) {
+                // back to €/MWh as in the Pakastin response, rounded to 15 digits so that the division by 10 does not accumulate errors
+                final var value = BigDecimal.valueOf(series.price(i)).movePointRight(1).round(fifteenDigits).stripTrailingZeros();
+                writer.beginObject().name("date").value(series.instant(i).toString()).name("value").value(value).endObject();
+            }
+            writer.endArray().endObject();
+        }
+    }
+
+    /**
+     * The next {@link #syncSpotData} downloads the whole history again instead of only the latest hours.
+     */
+    public static void requestFullRefresh() {
+        isFullRefreshRequested = true;
+    }
+
+    /**
+     * Brings the stored spot prices up to date. Only the hours after the last stored hour (the high-water mark) and
+     * an overlap of {@link #incrementalOverlapHours} before it are fetched and merged into the store. The whole
+     * history is downloaded when requested, when there is no stored data or when the merged data is inconsistent.
+     *
+     * @param stored the currently loaded prices or null if there are none
+     * @return the up-to-date prices
+     */
+    public static synchronized SpotPriceSeries syncSpotData(SpotPriceSeries stored) {
+        final var startTime = System.currentTimeMillis();
+        if (stored == null && (Files.exists(spotPriceStore) || Files.exists(Path.of(pakastin2YearFile)))) {
+            try {
+                stored = loadSpotData();
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not load the stored spot prices, doing a full refresh", e);
+            }
+        }
+        if (isFullRefreshRequested || stored == null || stored.isEmpty()) {
+            return fullRefresh(stored);
+        }
+        final var highWaterMark = stored.end();
+        final var fetched = getSeries(highWaterMark.minus(incrementalOverlapHours, ChronoUnit.HOURS), Instant.now().plus(10, ChronoUnit.DAYS));
+        final var merged = mergeIncremental(stored, fetched);
+        if (merged == null) {
+            log.warn("Incremental spot price sync after " + highWaterMark + " failed the consistency check, doing a full refresh");
+            return fullRefresh(stored);
+        }
+        try {
+            SpotPriceSegmentFile.write(merged, spotPriceStore);
+        } catch (IOException e) {
+            log.error("Error writing to file", e);
+        }
+        log.info("Synced spot prices incrementally, " + (merged.size() - stored.size()) + " new hours, high-water mark: " + merged.end() + " in " + (System.currentTimeMillis() - startTime) + " ms");
+        return merged;
+    }
+
+    /**
+     * Moves the binary store of the spot prices, e.g. to keep tests out of the working directory.
+     */
+    public static void setSpotPriceStore(Path store) {
+        spotPriceStore = store;
+    }
+
+    /**
+     * @return the stored prices with the fetched prices merged in or null if the result would have missing hours
+     */
+    public static SpotPriceSeries mergeIncremental(SpotPriceSeries stored, SpotPriceSeries fetched) {
+        if (fetched.isEmpty() || !fetched.isContiguous()) {
+            return null;
+        }
+        // The fetched hours must overlap or directly continue the stored ones
+        if (fetched.start().isAfter(stored.end().plus(1, ChronoUnit.HOURS))) {
+            return null;
+        }
+        return stored.merge(fetched);
+    }
+
+    /**
+     * @param stored the currently loaded prices, kept if the download is empty, or null
+     */
+    public static SpotPriceSeries fullRefresh(SpotPriceSeries stored) {
+        isFullRefreshRequested = false;
+        final var series = getSeries(spotDataHistoryStart, Instant.now().plus(10, ChronoUnit.DAYS));
+        if (series.isEmpty()) {
+            log.warn("The downloaded spot price history is empty, keeping the stored prices");
+            return stored != null ? stored : series;
+        }
+        try {
+            SpotPriceSegmentFile.write(series, spotPriceStore);
+        } catch (IOException e) {
+            log.error("Error writing to file", e);
+        }
+        log.info("Downloaded the full spot price history, " + series.size() + " hours");
+        return series;
+    }
+
 }
@@ -1,119 +1,132 @@
 package com.vesanieminen.froniusvisualizer.services;
 
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
+import com.vesanieminen.froniusvisualizer.services.model.CalendarIndex;
+import com.vesanieminen.froniusvisualizer.services.model.CalendarRollups;
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.HourlyJoin;
+import com.vesanieminen.froniusvisualizer.services.model.MarketSnapshot;
 import com.vesanieminen.froniusvisualizer.services.model.NordpoolPrice;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import com.vesanieminen.froniusvisualizer.services.model.TransferTariff;
+import com.vesanieminen.froniusvisualizer.services.model.VatTimeline;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.ParseException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.function.IntToDoubleFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
-import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastin2YearFile;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.loadSpotData;
 import static com.vesanieminen.froniusvisualizer.util.Utils.divide;
-import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
 import static com.vesanieminen.froniusvisualizer.util.Utils.getCurrentTimeWithHourPrecision;
-import static com.vesanieminen.froniusvisualizer.util.Utils.getVAT;
-import static com.vesanieminen.froniusvisualizer.util.Utils.numberFormat;
-import static com.vesanieminen.froniusvisualizer.util.Utils.sum;
 
 @Slf4j
 public class PriceCalculatorService {
 
-    private static LinkedHashMap<Instant, Double> spotPriceMap;
-    private static List<NordpoolPrice> nordpoolPriceList;
-    public static Instant spotDataStart;
-    public static Instant spotDataEnd;
+    public static SpotPriceSeries getSpotData() {
+        return getSpotPrices().series();
+    }
+
+    /**
+     * The spot prices of the current {@link MarketSnapshot}, loaded from the store on first use.
+     */
+    public static MarketSnapshot.SpotPrices getSpotPrices() {
+        final var spot = MarketData.get().spot();
+        return spot != null ? spot : loadSpotPrices();
+    }
 
-    public static LinkedHashMap<Instant, Double> getSpotData() {
-        if (spotPriceMap == null) {
-            spotPriceMap = updateSpotData();
+    private static synchronized MarketSnapshot.SpotPrices loadSpotPrices() {
+        final var spot = MarketData.get().spot();
+        if (spot != null) {
+            return spot;
         }
-        return spotPriceMap;
+        updateSpotData();
+        return MarketData.get().spot();
+    }
+
+    // The currently loaded prices or null before the first load
+    static SpotPriceSeries getLoadedSpotData() {
+        final var spot = MarketData.get().spot();
+        return spot != null ? spot.series() : null;
+    }
+
+    public static Instant getSpotDataStart() {
+        return getSpotData().start();
     }
 
-    public static LinkedHashMap<Instant, Double> updateSpotData() {
-        spotPriceMap = new LinkedHashMap<>();
-        final String file;
+    public static Instant getSpotDataEnd() {
+        return getSpotData().end();
+    }
+
+    public static SpotPriceSeries updateSpotData() {
+        final SpotPriceSeries series;
         try {
-            file = Files.readString(Path.of(pakastin2YearFile));
+            series = loadSpotData();
         } catch (IOException e) {
             log.error("Could not load the spot price file", e);
             throw new RuntimeException(e);
         }
-        final var pakastinResponse = mapToResponse(file);
-        pakastinResponse.prices.forEach(price -> spotPriceMap.put(price.date, price.value / 10));
-        spotDataStart = pakastinResponse.prices.get(0).date;
-        spotDataEnd = pakastinResponse.prices.get(pakastinResponse.prices.size() - 1).date;
-        log.info("updated spot data");
-        //log.info("size of pakastin map: " + sizeOf(spotPriceMap));
-        updateNordPoolPriceList();
-        return spotPriceMap;
-    }
-
-    public static void updateNordPoolPriceList() {
-        if (spotPriceMap != null) {
-            nordpoolPriceList = spotPriceMap.entrySet().stream().map(item -> new NordpoolPrice(item.getValue() * getVAT(item.getKey()), item.getKey().toEpochMilli())).toList();
-        }
+        return updateSpotData(series);
+    }
+
+    /**
+     * Builds the indexes of the series incrementally from the ones of the current snapshot and publishes them.
+     */
+    public static SpotPriceSeries updateSpotData(SpotPriceSeries series) {
+        final var snapshot = MarketData.publish(current -> current.withSpot(createSpotPrices(current.spot(), series)));
+        SpotCalculationCache.invalidate(snapshot.spot().version());
+        return snapshot.spot().series();
+    }
+
+    private static MarketSnapshot.SpotPrices createSpotPrices(MarketSnapshot.SpotPrices previous, SpotPriceSeries series) {
+        final var pricesWithVat = VatTimeline.FINLAND.withVat(series);
+        final IntToDoubleFunction priceWithVat = index -> pricesWithVat[index];
+        final var changedDays = CalendarRollups.changedDays(previous != null ? previous.series() : SpotPriceSeries.EMPTY, series);
+        final var rollups = (previous != null ? previous.rollups() : CalendarRollups.EMPTY).update(series, series::price, changedDays);
+        final var withVatRollups = (previous != null ? previous.withVatRollups() : CalendarRollups.EMPTY).update(series, priceWithVat, changedDays);
+        log.info("updated spot data, days changed: " + changedDays.size());
+        return new MarketSnapshot.SpotPrices(series, CalendarIndex.of(series), pricesWithVat, rollups, withVatRollups, previous != null ? previous.version() + 1 : 1);
     }
 
     public static FingridUsageData getFingridUsageData(String filePath) throws IOException, ParseException {
-        var start = Instant.MAX;
-        var end = Instant.MIN;
-        final var map = new LinkedHashMap<Instant, Double>();
-        final var reader = Files.newBufferedReader(Path.of(filePath));
-        CSVParser parser = new CSVParserBuilder().withSeparator(';').build();
-        CSVReader csvReader = new CSVReaderBuilder(reader)
-                .withSkipLines(0)
-                .withCSVParser(parser)
-                .build();
-
-        String[] header = csvReader.readNext();
-        boolean isNewFormat = header.length == 8;
-
-        String[] line;
-        while ((line = csvReader.readNext()) != null) {
-            // in case the Fingrid csv data has rows that contain: "null;MISSING", skip them
-            if ("MISSING".equals(line[getColumnIndex(isNewFormat, 6)])) {
-                break;
-            }
-            final var instant = Instant.parse(line[getColumnIndex(isNewFormat, 4)]);
-            if (isNewFormat) {
-                // On 2023-01-16 Fingrid changed from . to , for the comma separator
-                if (line[6].contains(".")) {
-                    map.put(instant, Double.parseDouble(line[6]));
-                } else {
-                    map.put(instant, numberFormat.parse(line[6]).doubleValue());
-                }
-            } else {
-                map.put(instant, numberFormat.parse(line[5]).doubleValue());
-            }
-            if (start.isAfter(instant)) {
-                start = instant;
-            }
-            if (end.isBefore(instant)) {
-                end = instant;
-            }
+        try (InputStream inputStream = Files.newInputStream(Path.of(filePath))) {
+            return FingridUsageParser.parse(inputStream);
         }
-        return new FingridUsageData(map, start, end);
     }
 
-    private static int getColumnIndex(boolean isNewFormat, int index) {
-        return isNewFormat ? index + 1 : index;
-    }
+    /**
+     * @param resolution the shortest metering period of the data, one hour or less
+     * @param start      the start of the first entry of the data or {@link Instant#MAX} if there is none
+     * @param end        the start of the last entry of the data or {@link Instant#MIN} if there is none
+     */
+    public record FingridUsageData(ConsumptionSeries series, Duration resolution, Instant start, Instant end) {
 
-    public record FingridUsageData(LinkedHashMap<Instant, Double> data, Instant start, Instant end) {
+        public FingridUsageData(ConsumptionSeries series, Duration resolution) {
+            this(series, resolution, series.isEmpty() ? Instant.MAX : series.instant(0), series.isEmpty() ? Instant.MIN : series.instant(series.size() - 1));
+        }
+
+        /**
+         * @return the data as a new map in time order
+         */
+        public LinkedHashMap<Instant, Double> data() {
+            final var data = new LinkedHashMap<Instant, Double>();
+            for (int i = 0; i < series.size(); ++i) {
+                data.put(series.instant(i), series.value(i));
+            }
+            return data;
+        }
     }
 
     public static double calculateSpotAveragePrice(LinkedHashMap<LocalDateTime, Double> spotData) {
@@ -121,80 +134,59 @@ public class PriceCalculatorService {
     }
 
     public static double calculateSpotAveragePriceThisYear() {
-        //if (spotAverageThisYear == null) {
-        final var year = getCurrentTimeWithHourPrecision().getYear();
-        return getSpotData().entrySet().stream().filter(yearFilter(year)).map(item -> item.getValue() * getVAT(item.getKey())).reduce(0d, Double::sum) / getSpotData().entrySet().stream().filter(yearFilter(year)).count();
-        //spotAverageThisYear = getSpotData().entrySet().stream().filter(yearFilter(year)).map(item -> item.getValue() * getVAT(item.getKey())).reduce(0d, Double::sum) / getSpotData().entrySet().stream().filter(yearFilter(year)).count();
-        //}
-        //return spotAverageThisYear;
-    }
-
-    private static Predicate<Map.Entry<Instant, Double>> yearFilter(int year) {
-        return item -> item.getKey().atZone(fiZoneID).getYear() == year;
+        return getSpotRollups(true).year(Year.from(getCurrentTimeWithHourPrecision())).average();
     }
 
     public static double calculateSpotAveragePriceThisMonth() {
-        final var now = getCurrentTimeWithHourPrecision();
-        final var month = now.getMonthValue();
-        final var year = now.getYear();
-        return getSpotData().entrySet().stream().filter(monthFilter(month, year)).map(item -> item.getValue() * getVAT(item.getKey())).reduce(0d, Double::sum) / getSpotData().entrySet().stream().filter(monthFilter(month, year)).count();
+        return getSpotRollups(true).month(YearMonth.from(getCurrentTimeWithHourPrecision())).average();
     }
 
     public static double calculateSpotAveragePriceToday() {
-        final var now = getCurrentTimeWithHourPrecision();
-        final var day = now.getDayOfMonth();
-        final var month = now.getMonthValue();
-        final var year = now.getYear();
-        return getSpotData().entrySet().stream().filter(dayFilter(day, month, year)).map(item -> item.getValue() * getVAT(item.getKey())).reduce(0d, Double::sum) / getSpotData().entrySet().stream().filter(dayFilter(day, month, year)).count();
+        return getSpotRollups(true).day(getCurrentTimeWithHourPrecision().toLocalDate()).average();
+    }
+
+    /**
+     * Day, month and year min / max / average of the spot price, kept up to date by {@link #updateSpotData()}.
+     */
+    public static CalendarRollups getSpotRollups(boolean hasVat) {
+        return getSpotPrices().rollups(hasVat);
     }
 
     public static List<Double> getPricesToday() {
-        final var now = getCurrentTimeWithHourPrecision();
-        final var day = now.getDayOfMonth();
-        final var month = now.getMonthValue();
-        final var year = now.getYear();
-        return getSpotData().entrySet().stream().filter(dayFilter(day, month, year)).map(item -> item.getValue() * getVAT(item.getKey())).collect(Collectors.toList());
+        final var spot = getSpotPrices();
+        return pricesWithVat(spot, spot.calendar().day(getCurrentTimeWithHourPrecision().toLocalDate()));
     }
 
     public static List<Double> getPricesTomorrow() {
-        final var now = getCurrentTimeWithHourPrecision();
-        final var day = now.getDayOfMonth() + 1;
-        final var month = now.getMonthValue();
-        final var year = now.getYear();
-        return getSpotData().entrySet().stream().filter(dayFilter(day, month, year)).map(item -> item.getValue() * getVAT(item.getKey())).collect(Collectors.toList());
+        final var spot = getSpotPrices();
+        return pricesWithVat(spot, spot.calendar().day(getCurrentTimeWithHourPrecision().toLocalDate().plusDays(1)));
     }
 
     public static List<Map.Entry<Instant, Double>> getPriceDataToday() {
-        final var now = getCurrentTimeWithHourPrecision();
-        final var day = now.getDayOfMonth();
-        final var month = now.getMonthValue();
-        final var year = now.getYear();
-        return getSpotData().entrySet().stream().filter(dayFilter(day, month, year)).map(item -> Map.entry(item.getKey(), item.getValue() * getVAT(item.getKey()))).collect(Collectors.toList());
+        final var spot = getSpotPrices();
+        final var spotData = spot.series();
+        return spot.calendar().day(getCurrentTimeWithHourPrecision().toLocalDate()).stream().mapToObj(index -> Map.entry(spotData.instant(index), spot.priceWithVat(index))).collect(Collectors.toList());
     }
 
     public static List<Double> getPricesForMonth() {
-        final var now = getCurrentTimeWithHourPrecision();
-        final var month = now.getMonthValue();
-        final var year = now.getYear();
-        return getSpotData().entrySet().stream().filter(monthFilter(month, year)).map(item -> item.getValue() * getVAT(item.getKey())).collect(Collectors.toList());
+        final var spot = getSpotPrices();
+        return pricesWithVat(spot, spot.calendar().month(YearMonth.from(getCurrentTimeWithHourPrecision())));
     }
 
     public static List<Double> getPricesForYear() {
-        final var now = getCurrentTimeWithHourPrecision();
-        final var year = now.getYear();
-        return getSpotData().entrySet().stream().filter(yearFilter(year)).map(item -> item.getValue() * getVAT(item.getKey())).collect(Collectors.toList());
+        final var spot = getSpotPrices();
+        return pricesWithVat(spot, spot.calendar().year(Year.from(getCurrentTimeWithHourPrecision())));
     }
 
+    // The list is built on demand for the client side history chart instead of keeping a second boxed copy of the series
     public static List<NordpoolPrice> getPrices() {
-        return nordpoolPriceList;
-    }
-
-    private static Predicate<Map.Entry<Instant, Double>> monthFilter(int month, int year) {
-        return item -> item.getKey().atZone(fiZoneID).getMonthValue() == month && item.getKey().atZone(fiZoneID).getYear() == year;
+        final var spot = getSpotPrices();
+        final var spotData = spot.series();
+        return IntStream.range(0, spotData.size()).mapToObj(index -> new NordpoolPrice(spot.priceWithVat(index), spotData.instant(index).toEpochMilli())).toList();
     }
 
-    private static Predicate<Map.Entry<Instant, Double>> dayFilter(int day, int month, int year) {
-        return item -> item.getKey().atZone(fiZoneID).getDayOfMonth() == day && item.getKey().atZone(fiZoneID).getMonthValue() == month && item.getKey().atZone(fiZoneID).getYear() == year;
+    private static List<Double> pricesWithVat(MarketSnapshot.SpotPrices spot, CalendarIndex.IndexRange range) {
+        return range.stream().mapToDouble(spot::priceWithVat).boxed().collect(Collectors.toList());
     }
 
     public static double calculateSpotElectricityPrice(LinkedHashMap<LocalDateTime, Double> spotData, LinkedHashMap<LocalDateTime, Double> fingridConsumptionData, double margin) {
@@ -202,70 +194,130 @@ public class PriceCalculatorService {
     }
 
     public static SpotCalculation calculateSpotElectricityPriceDetails(LinkedHashMap<Instant, Double> fingridConsumptionData, double margin, double vat) {
-        final var spotData = getSpotData();
-        final var spotCalculation = fingridConsumptionData.keySet().stream().filter(spotData::containsKey)
-                .map(item -> new SpotCalculation(
-                        spotData.get(item) * getVAT(item, vat) + margin,
-                        spotData.get(item) * getVAT(item, vat),
-                        (spotData.get(item) * getVAT(item, vat) + margin) * fingridConsumptionData.get(item),
-                        spotData.get(item) * getVAT(item, vat) * fingridConsumptionData.get(item),
-                        fingridConsumptionData.get(item),
-                        item,
-                        item,
-                        new HourValue(item.atZone(fiZoneID).getHour(), fingridConsumptionData.get(item)),
-                        new HourValue(item.atZone(fiZoneID).getHour(), (spotData.get(item) * getVAT(item, vat) + margin) * fingridConsumptionData.get(item) / 100),
-                        new HourValue(item.atZone(fiZoneID).getHour(), spotData.get(item) * getVAT(item, vat))
-                ))
-                .reduce(new SpotCalculation(
-                        0,
-                        0,
-                        0,
-                        0,
-                        0,
-                        Instant.MAX,
-                        Instant.MIN,
-                        HourValue.Zero(),
-                        HourValue.Zero(),
-                        HourValue.Zero()
-                ), (i1, i2) -> new SpotCalculation(
-                        i1.totalSpotPrice + i2.totalSpotPrice,
-                        i1.totalSpotPriceWithoutMargin + i2.totalSpotPriceWithoutMargin,
-                        i1.totalCost + i2.totalCost,
-                        i1.totalCostWithoutMargin + i2.totalCostWithoutMargin,
-                        i1.totalConsumption + i2.totalConsumption,
-                        i1.start.compareTo(i2.start) < 0 ? i1.start : i2.start,
-                        i1.end.compareTo(i2.end) > 0 ? i1.end : i2.end,
-                        sum(i1.consumptionHours, i2.consumptionHours),
-                        sum(i1.costHours, i2.costHours),
-                        sum(i1.spotAverage, i2.spotAverage)
-                ));
-        final var count = fingridConsumptionData.keySet().stream().filter(spotData::containsKey).count();
-        spotCalculation.averagePrice = spotCalculation.totalSpotPrice / count;
-        spotCalculation.averagePriceWithoutMargin = spotCalculation.totalSpotPriceWithoutMargin / count;
-        spotCalculation.totalCost = spotCalculation.totalCost / 100;
-        spotCalculation.totalCostWithoutMargin = spotCalculation.totalCostWithoutMargin / 100;
+        final var consumption = ConsumptionSeries.of(fingridConsumptionData);
+        return calculateSpotElectricityPriceDetails(consumption, 0, consumption.size(), margin, vat);
+    }
+
+    public static SpotCalculation calculateSpotElectricityPriceDetails(LinkedHashMap<Instant, Double> fingridConsumptionData, double margin, double vat, Instant start, Instant end) {
+        return calculateSpotElectricityPriceDetails(ConsumptionSeries.of(fingridConsumptionData), margin, vat, start, end);
+    }
+
+    /**
+     * @param start the start of the first included consumption hour
+     * @param end   the start of the last included consumption hour
+     */
+    public static SpotCalculation calculateSpotElectricityPriceDetails(ConsumptionSeries consumption, double margin, double vat, Instant start, Instant end) {
+        return calculateSpotElectricityPriceDetails(consumption, margin, vat, TransferTariff.NONE, start, end);
+    }
+
+    public static SpotCalculation calculateSpotElectricityPriceDetails(ConsumptionSeries consumption, double margin, double vat, TransferTariff transfer, Instant start, Instant end) {
+        return calculateSpotElectricityPriceDetails(consumption, consumption.lowerBound(start), consumption.upperBound(end), margin, vat, transfer);
+    }
+
+    public static SpotCalculation calculateSpotElectricityPriceDetails(ConsumptionSeries consumption, int from, int to, double margin, double vat) {
+        return calculateSpotElectricityPriceDetails(consumption, from, to, margin, vat, TransferTariff.NONE);
+    }
+
+    /**
+     * Spot price cost of the consumption entries in [from, to) in one pass over the consumption and the spot series
+     * without per-hour allocations. The consumption of hours without a spot price is skipped and reported in
+     * {@link SpotCalculation#coverage}.
+     *
+     * @param vat      1 for the prices without VAT, otherwise the VAT in effect at each hour is used
+     * @param transfer priced into {@link SpotCalculation#transferCost} for all the consumption entries in [from, to),
+     *                 also the ones without a spot price
+     */
+    public static SpotCalculation calculateSpotElectricityPriceDetails(ConsumptionSeries consumption, int from, int to, double margin, double vat, TransferTariff transfer) {
+        return calculateSpotElectricityPriceDetails(getSpotPrices(), consumption, from, to, margin, vat, transfer);
+    }
+
+    /**
+     * @param spot the spot prices to calculate with instead of the current ones
+     */
+    public static SpotCalculation calculateSpotElectricityPriceDetails(MarketSnapshot.SpotPrices spot, ConsumptionSeries consumption, int from, int to, double margin, double vat, TransferTariff transfer) {
+        final var accumulator = new SpotAccumulator(spot, consumption, margin, vat != 1);
+        final var coverage = HourlyJoin.join(consumption, from, to, spot.series(), accumulator);
+        final var count = coverage.matched();
+        final var spotCalculation = new SpotCalculation(
+                accumulator.totalSpotPrice,
+                accumulator.totalSpotPriceWithoutMargin,
+                accumulator.totalCost / 100,
+                accumulator.totalCostWithoutMargin / 100,
+                accumulator.totalConsumption,
+                count == 0 ? Instant.MAX : Instant.ofEpochSecond(accumulator.start),
+                count == 0 ? Instant.MIN : Instant.ofEpochSecond(accumulator.end),
+                accumulator.consumptionHours,
+                accumulator.costHours,
+                accumulator.spotAverage
+        );
+        spotCalculation.averagePrice = accumulator.totalSpotPrice / count;
+        spotCalculation.averagePriceWithoutMargin = accumulator.totalSpotPriceWithoutMargin / count;
+        spotCalculation.coverage = coverage;
+        spotCalculation.transferCost = transfer == TransferTariff.NONE ? 0 : transfer.cost(consumption, from, to) / 100;
         divide(spotCalculation.spotAverage, count / 24.0);
         return spotCalculation;
     }
 
-    public static SpotCalculation calculateSpotElectricityPriceDetails(LinkedHashMap<Instant, Double> fingridConsumptionData, double margin, double vat, Instant start, Instant end) throws IOException {
-        final LinkedHashMap<Instant, Double> filtered = getDateTimeRange(fingridConsumptionData, start, end);
-        return calculateSpotElectricityPriceDetails(filtered, margin, vat);
-    }
+    private static class SpotAccumulator implements HourlyJoin.Visitor {
+        private final MarketSnapshot.SpotPrices spot;
+        private final ConsumptionSeries consumption;
+        private final double margin;
+        private final boolean hasVat;
+        private final double[] consumptionHours = new double[24];
+        private final double[] costHours = new double[24];
+        private final double[] spotAverage = new double[24];
+        private double totalSpotPrice;
+        private double totalSpotPriceWithoutMargin;
+        private double totalCost;
+        private double totalCostWithoutMargin;
+        private double totalConsumption;
+        private long start = Long.MAX_VALUE;
+        private long end = Long.MIN_VALUE;
+
+        SpotAccumulator(MarketSnapshot.SpotPrices spot, ConsumptionSeries consumption, double margin, boolean hasVat) {
+            this.spot = spot;
+            this.consumption = consumption;
+            this.margin = margin;
+            this.hasVat = hasVat;
+        }
 
-    private static LinkedHashMap<Instant, Double> getDateTimeRange(LinkedHashMap<Instant, Double> fingridConsumptionData, Instant start, Instant end) {
-        return fingridConsumptionData.entrySet().stream().filter(item ->
-                (start.compareTo(item.getKey()) <= 0 && 0 <= end.compareTo(item.getKey()))
-        ).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (x, y) -> y, LinkedHashMap::new));
+        @Override
+        public void match(int consumptionIndex, int spotIndex) {
+            final var spotPrice = spot.price(spotIndex, hasVat);
+            final var hourConsumption = consumption.value(consumptionIndex);
+            final var hour = spot.calendar().hour(spotIndex);
+            totalSpotPrice += spotPrice + margin;
+            totalSpotPriceWithoutMargin += spotPrice;
+            totalCost += (spotPrice + margin) * hourConsumption;
+            totalCostWithoutMargin += spotPrice * hourConsumption;
+            totalConsumption += hourConsumption;
+            consumptionHours[hour] += hourConsumption;
+            costHours[hour] += (spotPrice + margin) * hourConsumption / 100;
+            spotAverage[hour] += spotPrice;
+            start = Math.min(start, consumption.epochSecond(consumptionIndex));
+            end = Math.max(end, consumption.epochSecond(consumptionIndex));
+        }
     }
 
     public static double calculateFixedElectricityPrice(LinkedHashMap<Instant, Double> fingridConsumptionData, double fixed) {
-        return fingridConsumptionData.keySet().stream().map(item -> fixed * fingridConsumptionData.get(item)).reduce(0d, Double::sum) / 100;
+        final var consumption = ConsumptionSeries.of(fingridConsumptionData);
+        return calculateFixedElectricityPrice(consumption, 0, consumption.size(), fixed);
     }
 
     public static double calculateFixedElectricityPrice(LinkedHashMap<Instant, Double> fingridConsumptionData, double fixed, Instant start, Instant end) {
-        final LinkedHashMap<Instant, Double> filtered = getDateTimeRange(fingridConsumptionData, start, end);
-        return calculateFixedElectricityPrice(filtered, fixed);
+        return calculateFixedElectricityPrice(ConsumptionSeries.of(fingridConsumptionData), fixed, start, end);
+    }
+
+    public static double calculateFixedElectricityPrice(ConsumptionSeries consumption, double fixed, Instant start, Instant end) {
+        return calculateFixedElectricityPrice(consumption, consumption.lowerBound(start), consumption.upperBound(end), fixed);
+    }
+
+    public static double calculateFixedElectricityPrice(ConsumptionSeries consumption, int from, int to, double fixed) {
+        var total = 0d;
+        for (int i = from; i < to; ++i) {
+            total += fixed * consumption.value(i);
+        }
+        return total / 100;
     }
 
     public static class SpotCalculation {
@@ -281,6 +333,9 @@ public class PriceCalculatorService {
         public double[] consumptionHours = new double[24];
         public double[] costHours = new double[24];
         public double[] spotAverage = new double[24];
+        public HourlyJoin.Coverage coverage = HourlyJoin.Coverage.EMPTY;
+        // € of transfer and tax for all the consumption in the range, also the hours without a spot price
+        public double transferCost;
 
         public SpotCalculation(double totalSpotPrice, double totalSpotPriceWithoutMargin, double totalCost, double totalCostWithoutMargin, double totalConsumption, Instant start, Instant end) {
             this.totalSpotPrice = totalSpotPrice;
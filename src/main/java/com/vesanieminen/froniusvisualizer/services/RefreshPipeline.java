@@ -0,0 +1,104 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Refreshes the upstream data as stages with declared dependencies. A stage starts as soon as the stages it depends
+ * on have succeeded, so independent sources are fetched concurrently and a refresh takes about as long as its slowest
+ * chain of stages. A failing stage is logged and skips only the stages that depend on it. The requests to a host are
+ * spaced by the rate limits of {@link UpstreamClient}.
+ */
+@Slf4j
+public class RefreshPipeline {
+
+    public enum Status {
+        SUCCEEDED, FAILED, SKIPPED
+    }
+
+    public record StageResult(String name, Status status, Duration duration) {
+    }
+
+    private record Stage(String name, Runnable task, List<String> dependencies) {
+    }
+
+    // In the order of declaration, which is a valid execution order as dependencies must be declared first
+    private final Map<String, Stage> stages;
+
+    private RefreshPipeline(Map<String, Stage> stages) {
+        this.stages = stages;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs the stages on the executor and waits for all of them to finish.
+     *
+     * @return the results in the order of declaration
+     */
+    public List<StageResult> run(ExecutorService executor) {
+        final var startTime = System.nanoTime();
+        final var futures = new HashMap<String, CompletableFuture<StageResult>>();
+        for (Stage stage : stages.values()) {
+            final var dependencies = stage.dependencies().stream().map(futures::get).toList();
+            final var future = CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .thenApplyAsync(ignored -> {
+                        if (dependencies.stream().anyMatch(dependency -> dependency.join().status() != Status.SUCCEEDED)) {
+                            log.warn("skipped refresh stage " + stage.name() + " as a stage it depends on did not succeed");
+                            return new StageResult(stage.name(), Status.SKIPPED, Duration.ZERO);
+                        }
+                        return runStage(stage);
+                    }, executor);
+            futures.put(stage.name(), future);
+        }
+        final var results = stages.keySet().stream().map(name -> futures.get(name).join()).toList();
+        log.info("refreshed in " + Duration.ofNanos(System.nanoTime() - startTime).toMillis() + " ms: " + results);
+        return results;
+    }
+
+    private static StageResult runStage(Stage stage) {
+        final var startTime = System.nanoTime();
+        try {
+            stage.task().run();
+            return new StageResult(stage.name(), Status.SUCCEEDED, Duration.ofNanos(System.nanoTime() - startTime));
+        } catch (RuntimeException e) {
+            log.error("refresh stage " + stage.name() + " failed", e);
+            return new StageResult(stage.name(), Status.FAILED, Duration.ofNanos(System.nanoTime() - startTime));
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+        /**
+         * @param dependencies the names of the stages that must succeed before this one, declared before it
+         * @throws IllegalArgumentException if the name is already used or a dependency has not been declared
+         */
+        public Builder stage(String name, Runnable task, String... dependencies) {
+            if (stages.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate refresh stage: " + name);
+            }
+            for (String dependency : dependencies) {
+                if (!stages.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Refresh stage " + name + " depends on an undeclared stage: " + dependency);
+                }
+            }
+            stages.put(name, new Stage(name, task, List.of(dependencies)));
+            return this;
+        }
+
+        public RefreshPipeline build() {
+            return new RefreshPipeline(new LinkedHashMap<>(stages));
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Refreshes every upstream source on its own cadence. The next run is computed from the wall clock after every run
+ * instead of at a fixed rate, so the runs do not drift and the daily publication times follow the DST transitions of
+ * their zone. A daily source is polled at its poll interval from its publication time until its data is up to date or
+ * its publish window ends, and after the window at {@link #LATE_POLL_INTERVAL} until the next publication.
+ * <p>
+ * The status of every source tells when it was last refreshed, when it runs next and how long it has been behind
+ * its latest publication. The staleness and the next run are also logged after every run.
+ */
+@Slf4j
+public class RefreshScheduler {
+
+    public static final Duration LATE_POLL_INTERVAL = Duration.ofHours(1);
+
+    /**
+     * Either periodic, published every interval at the offset from the epoch, or daily, published at the publish time
+     * of the zone.
+     */
+    public record Cadence(Duration interval, Duration offset, LocalTime publishTime, ZoneId zone, Duration publishWindow, Duration pollInterval) {
+
+        public static Cadence every(Duration interval, Duration offset) {
+            return new Cadence(interval, offset, null, null, null, null);
+        }
+
+        public static Cadence daily(LocalTime publishTime, ZoneId zone, Duration publishWindow, Duration pollInterval) {
+            return new Cadence(null, null, publishTime, zone, publishWindow, pollInterval);
+        }
+
+        public boolean isDaily() {
+            return publishTime != null;
+        }
+
+        /**
+         * @return the latest publication at or before the time
+         */
+        public Instant lastPublication(Instant time) {
+            if (isDaily()) {
+                final var today = publication(time);
+                return today.isAfter(time) ? publication(time.atZone(zone).minusDays(1).toInstant()) : today;
+            }
+            final var sinceOffset = time.toEpochMilli() - offset.toMillis();
+            return Instant.ofEpochMilli(Math.floorDiv(sinceOffset, interval.toMillis()) * interval.toMillis() + offset.toMillis());
+        }
+
+        /**
+         * @return the first publication after the time
+         */
+        public Instant nextPublication(Instant time) {
+            if (isDaily()) {
+                final var today = publication(time);
+                return today.isAfter(time) ? today : publication(time.atZone(zone).plusDays(1).toInstant());
+            }
+            return lastPublication(time).plus(interval);
+        }
+
+        // The publication of the day of the time, a publish time in a DST gap is moved forward by the gap
+        private Instant publication(Instant time) {
+            return ZonedDateTime.of(time.atZone(zone).toLocalDate(), publishTime, zone).toInstant();
+        }
+
+        /**
+         * @param isUpToDate whether the run at the time found the data of the latest publication
+         */
+        public Instant nextRun(Instant time, boolean isUpToDate) {
+            final var nextPublication = nextPublication(time);
+            if (isUpToDate || !isDaily()) {
+                return nextPublication;
+            }
+            final var inWindow = time.isBefore(lastPublication(time).plus(publishWindow));
+            final var poll = time.plus(inWindow ? pollInterval : LATE_POLL_INTERVAL);
+            return poll.isBefore(nextPublication) ? poll : nextPublication;
+        }
+    }
+
+    /**
+     * @param isUpToDate whether the refreshed data contains the publication at the given time, periodic sources are
+     *                   up to date after every successful refresh
+     */
+    public record Source(String name, Cadence cadence, Runnable refresh, Predicate<Instant> isUpToDate) {
+    }
+
+    /**
+     * @param lastRun     the start of the latest run or null
+     * @param lastSuccess the start of the latest successful run or null
+     * @param upToDate    the start of the latest run that found the data up to date or null
+     * @param nextRun     the start of the next run
+     * @param staleness   the time since the latest publication if the data does not contain it yet, otherwise 0
+     * @param failures    the failed runs in a row
+     */
+    public record SourceStatus(String name, Instant lastRun, Instant lastSuccess, Instant upToDate, Instant nextRun, Duration staleness, int failures) {
+    }
+
+    private static class SourceState {
+        private final Source source;
+        private Instant lastRun;
+        private Instant lastSuccess;
+        private Instant upToDate;
+        private Instant nextRun;
+        private int failures;
+
+        private SourceState(Source source) {
+            this.source = source;
+        }
+    }
+
+    private final Map<String, SourceState> states = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor;
+    private final Clock clock;
+
+    public RefreshScheduler(ScheduledExecutorService executor, Clock clock) {
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name is already used
+     */
+    public RefreshScheduler source(String name, Cadence cadence, Runnable refresh) {
+        return source(name, cadence, refresh, publication -> true);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name is already used
+     */
+    public synchronized RefreshScheduler source(String name, Cadence cadence, Runnable refresh, Predicate<Instant> isUpToDate) {
+        if (states.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate refresh source: " + name);
+        }
+        states.put(name, new SourceState(new Source(name, cadence, refresh, isUpToDate)));
+        return this;
+    }
+
+    /**
+     * Schedules all the sources. The sources that succeeded in the initial refresh continue from their next run, the
+     * ones that did not succeed run immediately and the ones that were not part of it wait for their next publication.
+     *
+     * @param initialRefresh the results of a refresh with the stages named after the sources, e.g. at startup
+     */
+    public synchronized void start(List<RefreshPipeline.StageResult> initialRefresh) {
+        final var now = clock.instant();
+        for (SourceState state : states.values()) {
+            final var result = initialRefresh.stream().filter(stageResult -> stageResult.name().equals(state.source.name())).findFirst();
+            if (result.isEmpty()) {
+                schedule(state, state.source.cadence().nextPublication(now));
+            } else if (result.get().status() == RefreshPipeline.Status.SUCCEEDED) {
+                final var isUpToDate = state.source.isUpToDate().test(state.source.cadence().lastPublication(now));
+                state.lastRun = now;
+                state.lastSuccess = now;
+                state.upToDate = isUpToDate ? now : null;
+                schedule(state, state.source.cadence().nextRun(now, isUpToDate));
+            } else {
+                schedule(state, now);
+            }
+        }
+    }
+
+    private void schedule(SourceState state, Instant nextRun) {
+        state.nextRun = nextRun;
+        final var delay = Math.max(0, Duration.between(clock.instant(), nextRun).toMillis());
+        executor.schedule(() -> run(state), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(SourceState state) {
+        final var source = state.source;
+        final var start = clock.instant();
+        var isUpToDate = false;
+        try {
+            source.refresh().run();
+            isUpToDate = source.isUpToDate().test(source.cadence().lastPublication(start));
+            synchronized (this) {
+                state.lastSuccess = start;
+                state.failures = 0;
+                if (isUpToDate) {
+                    state.upToDate = start;
+                }
+            }
+        } catch (Throwable e) {
+            // Anything escaping here would end the runs of the source, as the next one would not be scheduled
+            final int failures;
+            synchronized (this) {
+                failures = ++state.failures;
+            }
+            log.error("refreshing " + source.name() + " failed " + failures + " times in a row", e);
+        }
+        final var now = clock.instant();
+        final var nextRun = source.cadence().nextRun(now, isUpToDate);
+        final Duration staleness;
+        synchronized (this) {
+            state.lastRun = start;
+            schedule(state, nextRun);
+            staleness = staleness(state, now);
+        }
+        log.info("ran " + source.name() + (isUpToDate ? "" : ", not up to date yet") + ", staleness: " + staleness + ", next run at " + nextRun);
+    }
+
+    private static Duration staleness(SourceState state, Instant now) {
+        final var lastPublication = state.source.cadence().lastPublication(now);
+        final var isUpToDate = state.upToDate != null && !state.upToDate.isBefore(lastPublication);
+        return isUpToDate ? Duration.ZERO : Duration.between(lastPublication, now);
+    }
+
+    public synchronized List<SourceStatus> getStatus() {
+        final var now = clock.instant();
+        return states.values().stream()
+                .map(state -> new SourceStatus(state.source.name(), state.lastRun, state.lastSuccess, state.upToDate, state.nextRun, staleness(state, now), state.failures))
+                .toList();
+    }
+
+}
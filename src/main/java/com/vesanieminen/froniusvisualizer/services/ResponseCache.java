@@ -0,0 +1,369 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Upstream responses of a source stored on disk with their validators and the SHA-256 of the body. A fetch sends
+ * {@code If-None-Match} and {@code If-Modified-Since} when the URL is the cached one and returns nothing when the
+ * upstream answers 304 or with an identical body, so the caller can skip parsing and publishing a new snapshot. An
+ * identical body is recognized by comparing it with the cached one as it arrives, which also covers the sources that
+ * do not send validators, and only a changed body is decoded, in the same pass that writes it to the cache. The first
+ * fetch of a source after a restart always returns the body, decoded from the cached file if it has not changed. The
+ * outcome of every fetch is logged with the {@link Stats}.
+ * <p>
+ * Only sources whose URL or body stays the same between publications benefit, e.g. not a query of a window that
+ * starts at the current hour.
+ */
+@Slf4j
+public class ResponseCache {
+
+    public static final String defaultDirectory = "upstream-cache";
+
+    /**
+     * @param notModified the fetches answered with 304
+     * @param unchanged   the fetches with a body identical to the cached one
+     * @param changed     the fetches with a new body
+     */
+    public record Stats(long notModified, long unchanged, long changed) {
+    }
+
+    private static volatile Path directory = Path.of(defaultDirectory);
+    // The sources whose cached body has been returned since the start, a 304 before that returns the cached body
+    private static final Set<String> delivered = ConcurrentHashMap.newKeySet();
+    private static final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private static final LongAdder notModified = new LongAdder();
+    private static final LongAdder unchanged = new LongAdder();
+    private static final LongAdder changed = new LongAdder();
+
+    public static <T> Optional<T> fetch(String source, String url, StreamingJson.Decoder<T> decoder) {
+        return fetch(source, url, Map.of(), decoder);
+    }
+
+    /**
+     * @param source the name of the cached response, e.g. {@code nordpool}
+     * @return the decoded body or empty if it has not changed since it was last returned
+     */
+    public static <T> Optional<T> fetch(String source, String url, Map<String, String> headers, StreamingJson.Decoder<T> decoder) {
+        synchronized (locks.computeIfAbsent(source, key -> new Object())) {
+            try {
+                return fetchLocked(source, url, headers, decoder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static <T> Optional<T> fetchLocked(String source, String url, Map<String, String> headers, StreamingJson.Decoder<T> decoder) throws IOException {
+        final var entryFile = directory.resolve(source + ".properties");
+        final var entry = readEntry(entryFile);
+        final var cachedHash = entry.getProperty("hash");
+        // The body file is named by its hash, so the entry always points to the body it describes
+        final var cachedBody = cachedHash != null ? bodyFile(source, cachedHash) : null;
+        final var hasBody = cachedBody != null && Files.exists(cachedBody);
+        final var requestHeaders = new HashMap<>(headers);
+        if (hasBody && url.equals(entry.getProperty("url"))) {
+            if (entry.getProperty("etag") != null) {
+                requestHeaders.put("If-None-Match", entry.getProperty("etag"));
+            }
+            if (entry.getProperty("lastModified") != null) {
+                requestHeaders.put("If-Modified-Since", entry.getProperty("lastModified"));
+            }
+        }
+        final var hasValidators = requestHeaders.size() > headers.size();
+        var response = request(source, url, requestHeaders);
+        if (response.statusCode() == 304) {
+            response.body().close();
+            if (hasValidators) {
+                notModified.increment();
+                log.info(source + " not modified, " + getStats());
+                return deliver(source, cachedBody, decoder);
+            }
+            // Without a cached body to validate a 304 is a miss
+            log.warn(source + " answered 304 to a request without validators, requesting again");
+            response = request(source, url, headers);
+            if (response.statusCode() == 304) {
+                response.body().close();
+                throw new IOException(source + " answered 304 without a cached body");
+            }
+        }
+        if (response.statusCode() != 200) {
+            // errors are decoded as before but not cached
+            try (var body = response.body()) {
+                return Optional.ofNullable(StreamingJson.decode(body, decoder));
+            }
+        }
+        Files.createDirectories(directory);
+        final var tempFile = directory.resolve(source + ".body.tmp");
+        final var digest = sha256();
+        final Optional<T> decoded;
+        try (var wire = new DigestInputStream(response.body(), digest); var copy = Files.newOutputStream(tempFile)) {
+            decoded = hasBody ? decodeIfChanged(wire, copy, cachedBody, decoder) : Optional.ofNullable(StreamingJson.decode(new TeeInputStream(wire, copy), decoder));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        final var hash = HexFormat.of().formatHex(digest.digest());
+        if (decoded == null) {
+            Files.delete(tempFile);
+            // the validators may have changed with an identical body
+            writeEntry(entryFile, url, response, hash);
+            unchanged.increment();
+            log.info(source + " unchanged, " + getStats());
+            return deliver(source, cachedBody, decoder);
+        }
+        final var body = bodyFile(source, hash);
+        Files.move(tempFile, body, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writeEntry(entryFile, url, response, hash);
+        if (hasBody && !cachedBody.equals(body)) {
+            Files.delete(cachedBody);
+        }
+        changed.increment();
+        log.info(source + " changed, " + getStats());
+        delivered.add(source);
+        return decoded;
+    }
+
+    private static HttpResponse<InputStream> request(String source, String url, Map<String, String> headers) throws IOException {
+        try {
+            return UpstreamClient.stream(source, url, headers);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Path bodyFile(String source, String hash) {
+        return directory.resolve(source + "." + hash + ".body");
+    }
+
+    /**
+     * Copies the body while comparing it with the cached one and starts decoding only at the first byte that differs.
+     * The decoder reads the identical part from the cached body and the rest from the response, so an unchanged body
+     * is never parsed and a changed one is still read from the upstream only once.
+     *
+     * @return the decoded body or null if it is identical to the cached one
+     */
+    private static <T> Optional<T> decodeIfChanged(InputStream wire, OutputStream copy, Path cachedBody, StreamingJson.Decoder<T> decoder) throws IOException {
+        final var buffer = new byte[8192];
+        final var cachedBuffer = new byte[buffer.length];
+        var identical = 0L;
+        try (var cached = Files.newInputStream(cachedBody)) {
+            while (true) {
+                final var read = wire.read(buffer);
+                if (read < 0) {
+                    if (cached.read() < 0) {
+                        return null;
+                    }
+                    // the new body is a prefix of the cached one
+                    return Optional.ofNullable(StreamingJson.decode(new PrefixInputStream(Files.newInputStream(cachedBody), identical), decoder));
+                }
+                copy.write(buffer, 0, read);
+                final var cachedRead = cached.readNBytes(cachedBuffer, 0, read);
+                final var mismatch = Arrays.mismatch(buffer, 0, read, cachedBuffer, 0, cachedRead);
+                if (mismatch >= 0) {
+                    final var body = new SequenceInputStream(Collections.enumeration(List.of(
+                            new PrefixInputStream(Files.newInputStream(cachedBody), identical + mismatch),
+                            new ByteArrayInputStream(buffer, mismatch, read - mismatch),
+                            new TeeInputStream(wire, copy))));
+                    return Optional.ofNullable(StreamingJson.decode(body, decoder));
+                }
+                identical += read;
+            }
+        }
+    }
+
+    // The first bytes of a stream
+    private static class PrefixInputStream extends FilterInputStream {
+        private long remaining;
+
+        private PrefixInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final var read = in.read();
+            if (read >= 0) {
+                --remaining;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final var read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final var skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * Copies the body into the cache file as the decoder reads it. Closing copies the rest that the decoder did not
+     * read, so that the file and the hash cover the whole body.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+        private boolean isClosed;
+
+        private TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final var read = in.read();
+            if (read >= 0) {
+                copy.write(read);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final var read = in.read(b, off, len);
+            if (read > 0) {
+                copy.write(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final var buffer = new byte[(int) Math.min(n, 8192)];
+            final var read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            try (copy) {
+                in.transferTo(copy);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private static <T> Optional<T> deliver(String source, Path bodyFile, StreamingJson.Decoder<T> decoder) throws IOException {
+        return delivered.contains(source) ? Optional.empty() : decode(source, bodyFile, decoder);
+    }
+
+    private static <T> Optional<T> decode(String source, Path bodyFile, StreamingJson.Decoder<T> decoder) throws IOException {
+        final var decoded = StreamingJson.read(bodyFile, decoder);
+        delivered.add(source);
+        return Optional.ofNullable(decoded);
+    }
+
+    private static Properties readEntry(Path entryFile) {
+        final var entry = new Properties();
+        if (Files.exists(entryFile)) {
+            try (var reader = Files.newBufferedReader(entryFile)) {
+                entry.load(reader);
+            } catch (IOException e) {
+                log.warn("Could not read the cached response " + entryFile, e);
+            }
+        }
+        return entry;
+    }
+
+    private static void writeEntry(Path entryFile, String url, HttpResponse<?> response, String hash) throws IOException {
+        final var entry = new Properties();
+        entry.setProperty("url", url);
+        entry.setProperty("hash", hash);
+        response.headers().firstValue("ETag").ifPresent(etag -> entry.setProperty("etag", etag));
+        response.headers().firstValue("Last-Modified").ifPresent(lastModified -> entry.setProperty("lastModified", lastModified));
+        // The entry is replaced atomically after the body is in place, a crash in between leaves the old entry with
+        // its own body
+        final var tempFile = entryFile.resolveSibling(entryFile.getFileName() + ".tmp");
+        try (var writer = Files.newBufferedWriter(tempFile)) {
+            entry.store(writer, null);
+        }
+        Files.move(tempFile, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static Stats getStats() {
+        return new Stats(notModified.sum(), unchanged.sum(), changed.sum());
+    }
+
+    public static void setDirectory(Path cacheDirectory) {
+        directory = cacheDirectory;
+    }
+
+    /**
+     * Forgets which sources have been returned, so that the next fetch of every source returns its body as after a
+     * restart.
+     */
+    public static void reset() {
+        delivered.clear();
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.SpotCalculation;
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.TransferTariff;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spot calculations keyed by the content of the consumption, the parameters and the version of the spot prices, so
+ * that a repeated calculation, e.g. the same Datahub export shared by a household or a reloaded page, is not run
+ * again. The cache is cleared whenever new spot prices are published and the least recently used results are dropped
+ * beyond {@link #MAX_ENTRIES}. The cached results are shared and must not be modified.
+ */
+@Slf4j
+public class SpotCalculationCache {
+
+    public static final int MAX_ENTRIES = 1000;
+
+    private record Key(String consumptionHash, int from, int to, double margin, double vat, TransferTariff transfer, long spotVersion) {
+    }
+
+    /**
+     * @param size the number of cached results
+     */
+    public record Stats(long hits, long misses, int size) {
+
+        public double hitRate() {
+            final var lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private static final Map<Key, SpotCalculation> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, SpotCalculation> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static long latestSpotVersion;
+
+    /**
+     * Cached {@link PriceCalculatorService#calculateSpotElectricityPriceDetails(ConsumptionSeries, double, double, TransferTariff, Instant, Instant)}.
+     */
+    public static SpotCalculation calculateSpotElectricityPriceDetails(ConsumptionSeries consumption, double margin, double vat, TransferTariff transfer, Instant start, Instant end) {
+        // The same snapshot is used for the key and the calculation even if the prices are updated in between
+        final var spot = PriceCalculatorService.getSpotPrices();
+        final var from = consumption.lowerBound(start);
+        final var to = consumption.upperBound(end);
+        final var key = new Key(consumption.contentHash(), from, to, margin, vat, transfer, spot.version());
+        synchronized (cache) {
+            final var cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        final var calculation = PriceCalculatorService.calculateSpotElectricityPriceDetails(spot, consumption, from, to, margin, vat, transfer);
+        synchronized (cache) {
+            // a result of replaced prices would never be hit again
+            if (spot.version() >= latestSpotVersion) {
+                cache.put(key, calculation);
+            }
+        }
+        return calculation;
+    }
+
+    /**
+     * Drops all the results when spot prices of the version are published, the results of older prices are not cached
+     * anymore.
+     */
+    static void invalidate(long spotVersion) {
+        synchronized (cache) {
+            latestSpotVersion = Math.max(latestSpotVersion, spotVersion);
+            cache.clear();
+        }
+        final var stats = getStats();
+        log.info("spot calculation cache cleared, hits: " + stats.hits() + ", misses: " + stats.misses() + ", hit rate: " + stats.hitRate());
+    }
+
+    public static Stats getStats() {
+        synchronized (cache) {
+            return new Stats(hits.sum(), misses.sum(), cache.size());
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-width binary file of a {@link SpotPriceSeries}:
+ * <pre>
+ * header:  int magic "SPOT", short version, short flags, int count, int crc32 of the records
+ * records: count * (long epoch hour, double price in c/kWh without VAT)
+ * </pre>
+ * The file is replaced atomically on write and memory-mapped on read, so loading is a single copy of
+ * fixed-width fields into the columns of the series instead of text parsing.
+ */
+public class SpotPriceSegmentFile {
+
+    private static final int MAGIC = 0x53504F54;
+    private static final short VERSION = 1;
+    private static final short FLAG_CRC = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 16;
+
+    public static void write(SpotPriceSeries series, Path path) throws IOException {
+        final var records = ByteBuffer.allocate(series.size() * RECORD_BYTES);
+        for (int i = 0; i < series.size(); ++i) {
+            records.putLong(series.epochHour(i)).putDouble(series.price(i));
+        }
+        records.flip();
+        final var crc = new CRC32();
+        crc.update(records.duplicate());
+        final var header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort(FLAG_CRC)
+                .putInt(series.size())
+                .putInt((int) crc.getValue())
+                .flip();
+
+        final var directory = path.toAbsolutePath().getParent();
+        final var tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining() || records.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, records});
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * @throws IOException if the file cannot be read or it is truncated or corrupted
+     */
+    public static SpotPriceSeries read(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Spot price segment file is too short: " + path);
+            }
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+                throw new IOException("Not a spot price segment file: " + path);
+            }
+            final var flags = buffer.getShort(6);
+            final var count = buffer.getInt(8);
+            if (count < 0 || channel.size() != HEADER_BYTES + (long) count * RECORD_BYTES) {
+                throw new IOException("Spot price segment file has a wrong size: " + path);
+            }
+            final var records = buffer.slice(HEADER_BYTES, count * RECORD_BYTES);
+            if ((flags & FLAG_CRC) != 0) {
+                final var crc = new CRC32();
+                crc.update(records.duplicate());
+                if ((int) crc.getValue() != buffer.getInt(12)) {
+                    throw new IOException("Spot price segment file has a wrong checksum: " + path);
+                }
+            }
+            final var hours = new long[count];
+            final var prices = new double[count];
+            for (int i = 0; i < count; ++i) {
+                hours[i] = records.getLong(i * RECORD_BYTES);
+                prices[i] = records.getDouble(i * RECORD_BYTES + Long.BYTES);
+                // written from a series, so the hours are in order unless the file has been tampered with
+                if (i > 0 && hours[i - 1] >= hours[i]) {
+                    throw new IOException("Spot price segment file is not sorted by time: " + path);
+                }
+            }
+            return SpotPriceSeries.ofSorted(hours, prices);
+        }
+    }
+
+}
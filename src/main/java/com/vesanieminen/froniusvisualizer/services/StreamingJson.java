@@ -0,0 +1,66 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Decodes JSON responses straight from the response body stream with a {@link JsonReader}, so that the payload is
+ * never held in memory as a String. A compressed response is decompressed on the way by {@link UpstreamClient#stream}.
+ */
+public class StreamingJson {
+
+    @FunctionalInterface
+    public interface Decoder<T> {
+        T decode(JsonReader reader) throws IOException;
+    }
+
+    public static <T> Decoder<T> decoderOf(Class<T> type) {
+        return reader -> JsonCodecs.gson.fromJson(reader, type);
+    }
+
+    public static <T> T fetch(String source, String url, Decoder<T> decoder) {
+        return fetch(source, url, Map.of(), decoder);
+    }
+
+    /**
+     * @param source the name of the upstream data the transfer is counted for, e.g. {@code spot}
+     */
+    public static <T> T fetch(String source, String url, Map<String, String> headers, Decoder<T> decoder) {
+        final HttpResponse<InputStream> response;
+        try {
+            response = UpstreamClient.stream(source, url, headers);
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        try (var body = response.body()) {
+            return decode(body, decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> T decode(InputStream inputStream, Decoder<T> decoder) throws IOException {
+        return decode(new JsonReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))), decoder);
+    }
+
+    public static <T> T read(Path path, Decoder<T> decoder) throws IOException {
+        return decode(new JsonReader(Files.newBufferedReader(path)), decoder);
+    }
+
+    private static <T> T decode(JsonReader reader, Decoder<T> decoder) throws IOException {
+        try (reader) {
+            return decoder.decode(reader);
+        }
+    }
+
+}
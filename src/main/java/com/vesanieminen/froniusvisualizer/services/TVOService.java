@@ -1,15 +1,7 @@
 package com.vesanieminen.froniusvisualizer.services;
 
-import com.fatboyindustrial.gsonjavatime.Converters;
-import com.google.gson.GsonBuilder;
 import com.vesanieminen.froniusvisualizer.services.model.TVOResponse;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -28,16 +20,7 @@ public class TVOService {
         //if (nextUpdate.isBefore(LocalDateTime.now(fiZoneID))) {
         final var nowWithoutMinutes = LocalDateTime.now(fiZoneID).withMinute(36);
         nextUpdate = nowWithoutMinutes.plusHours(1);
-        final HttpRequest request;
-        final HttpResponse<String> response;
-        try {
-            request = HttpRequest.newBuilder().uri(new URI(baseUrl.formatted(createTVODateTimeFormat(nowWithoutMinutes)))).GET().build();
-            response = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build().send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (URISyntaxException | IOException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        final var gson = Converters.registerAll(new GsonBuilder()).create();
-        tvoResponse = gson.fromJson(response.body(), TVOResponse.class);
+        tvoResponse = StreamingJson.fetch("tvo", baseUrl.formatted(createTVODateTimeFormat(nowWithoutMinutes)), StreamingJson.decoderOf(TVOResponse.class));
         //}
         return tvoResponse;
     }
@@ -0,0 +1,322 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The HTTP client of all the requests to upstream services. The clients are shared, so connections are kept alive
+ * and HTTP/2 connections are reused between requests instead of every request starting a new client with its own
+ * selector thread and connection pool. Every host has a connect and a request timeout, {@link #DEFAULT_TIMEOUTS}
+ * unless set with {@link #setTimeouts}, and a host can have a minimum interval between the starts of its requests,
+ * which makes concurrent requests to it wait for their turn. The responses read with {@link #stream} are requested
+ * gzip or deflate compressed and decompressed while they are read.
+ * <p>
+ * The base URL of an upstream can be replaced with {@link #overrideBaseUrl}, e.g. to point a service to a local
+ * stand-in server in tests.
+ */
+@Slf4j
+public class UpstreamClient {
+
+    public record Timeouts(Duration connect, Duration request) {
+    }
+
+    public static final Timeouts DEFAULT_TIMEOUTS = new Timeouts(Duration.ofSeconds(10), Duration.ofSeconds(30));
+
+    private static final Map<String, Timeouts> timeouts = new ConcurrentHashMap<>(Map.of(
+            // the full spot price history is one large response
+            "sahkotin.fi", new Timeouts(Duration.ofSeconds(10), Duration.ofSeconds(60))
+    ));
+    // The connect timeout is a property of the client, so there is one client per distinct connect timeout
+    private static final Map<Duration, HttpClient> clients = new ConcurrentHashMap<>();
+    private static final Map<String, String> baseUrlOverrides = new ConcurrentHashMap<>();
+    // Fingrid limits the request rate of its APIs
+    private static final Map<String, Duration> minimumIntervals = new ConcurrentHashMap<>(Map.of(
+            "api.fingrid.fi", Duration.ofMillis(500),
+            "www.fingrid.fi", Duration.ofMillis(500)
+    ));
+    // System.nanoTime() at which the next request to the host may start
+    private static final Map<String, AtomicLong> nextRequestTimes = new ConcurrentHashMap<>();
+    private static final Map<String, TransferCounters> transfers = new ConcurrentHashMap<>();
+
+    /**
+     * @param wireBytes    the bytes of the response bodies as transferred
+     * @param decodedBytes the bytes of the response bodies after decompression
+     */
+    public record TransferStats(String source, long responses, long wireBytes, long decodedBytes) {
+
+        public double compressionRatio() {
+            return wireBytes == 0 ? 1 : (double) decodedBytes / wireBytes;
+        }
+    }
+
+    private record TransferCounters(LongAdder responses, LongAdder wireBytes, LongAdder decodedBytes) {
+
+        private TransferCounters() {
+            this(new LongAdder(), new LongAdder(), new LongAdder());
+        }
+    }
+
+    public static HttpResponse<String> get(String url) throws IOException, InterruptedException {
+        return send(url, Map.of(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sends a GET request, following redirects.
+     *
+     * @throws java.net.http.HttpTimeoutException if the host does not respond within its request timeout
+     */
+    public static <T> HttpResponse<T> send(String url, Map<String, String> headers, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        final var request = createRequest(url, headers);
+        final var wait = reserveRequestTime(request.uri());
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return client(request.uri()).send(request, bodyHandler);
+    }
+
+    /**
+     * Sends a GET request accepting a gzip or deflate compressed response. The body is decompressed as it is read, so a
+     * decoder reading it never holds the compressed or the decompressed payload in memory. The bytes transferred and
+     * decoded are counted for the source and logged at debug level when the body is closed.
+     *
+     * @param source the name of the upstream data, e.g. {@code nordpool}
+     */
+    public static HttpResponse<InputStream> stream(String source, String url, Map<String, String> headers) throws IOException, InterruptedException {
+        final var requestHeaders = new HashMap<>(headers);
+        requestHeaders.putIfAbsent("Accept-Encoding", "gzip, deflate");
+        return send(url, requestHeaders, responseInfo -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+                body -> decoding(source, body, responseInfo.headers().firstValue("Content-Encoding").orElse(""))));
+    }
+
+    private static InputStream decoding(String source, InputStream body, String encoding) {
+        final var counters = transfers.computeIfAbsent(source, key -> new TransferCounters());
+        counters.responses().increment();
+        return new DecodingInputStream(source, new CountingInputStream(body, counters.wireBytes()), encoding, counters.decodedBytes());
+    }
+
+    /**
+     * Decompresses the body by its content encoding. The decompressing stream is created on the first read, skip or
+     * available, as reading the gzip header blocks and the body is mapped before it arrives. Closing before that closes
+     * the body. Marks are not supported.
+     */
+    private static class DecodingInputStream extends InputStream {
+        private final String source;
+        private final CountingInputStream wire;
+        private final String encoding;
+        private final LongAdder decodedBytes;
+        private CountingInputStream decoded;
+        private boolean isClosed;
+
+        private DecodingInputStream(String source, CountingInputStream wire, String encoding, LongAdder decodedBytes) {
+            this.source = source;
+            this.wire = wire;
+            this.encoding = encoding;
+            this.decodedBytes = decodedBytes;
+        }
+
+        private InputStream decoded() throws IOException {
+            if (isClosed) {
+                throw new IOException("Stream closed");
+            }
+            if (decoded == null) {
+                final var decompressed = switch (encoding.trim().toLowerCase()) {
+                    case "gzip", "x-gzip" -> new GZIPInputStream(wire);
+                    case "deflate" -> new InflaterInputStream(wire);
+                    default -> wire;
+                };
+                decoded = new CountingInputStream(decompressed, decodedBytes);
+            }
+            return decoded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return decoded().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return decoded().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return decoded().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decoded().available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!isClosed) {
+                isClosed = true;
+                (decoded != null ? decoded : wire).close();
+                log.debug(source + " response: " + wire.count + " bytes transferred, " + (decoded != null ? decoded.count : 0) + " bytes decoded, " + getTransferStats(source));
+            }
+        }
+    }
+
+    // Counts the bytes of one response and adds them to the totals of its source
+    private static class CountingInputStream extends FilterInputStream {
+        private final LongAdder total;
+        private long count;
+
+        private CountingInputStream(InputStream in, LongAdder total) {
+            super(in);
+            this.total = total;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final var read = in.read();
+            if (read >= 0) {
+                add(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final var read = in.read(b, off, len);
+            if (read > 0) {
+                add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final var skipped = in.skip(n);
+            add(skipped);
+            return skipped;
+        }
+
+        private void add(long bytes) {
+            count += bytes;
+            total.add(bytes);
+        }
+    }
+
+    public static <T> CompletableFuture<HttpResponse<T>> sendAsync(String url, HttpResponse.BodyHandler<T> bodyHandler) {
+        final var request = createRequest(url, Map.of());
+        final var client = client(request.uri());
+        final var wait = reserveRequestTime(request.uri());
+        if (wait > 0) {
+            return CompletableFuture.runAsync(() -> {
+            }, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS)).thenCompose(ignored -> client.sendAsync(request, bodyHandler));
+        }
+        return client.sendAsync(request, bodyHandler);
+    }
+
+    /**
+     * @return the nanoseconds to wait before the request may start
+     */
+    private static long reserveRequestTime(URI uri) {
+        final var interval = uri.getHost() != null ? minimumIntervals.get(uri.getHost()) : null;
+        if (interval == null) {
+            return 0;
+        }
+        final var intervalNanos = interval.toNanos();
+        final var now = System.nanoTime();
+        final var next = nextRequestTimes.computeIfAbsent(uri.getHost(), host -> new AtomicLong(now));
+        final var reserved = Math.max(next.getAndAccumulate(now, (previous, current) -> Math.max(previous, current) + intervalNanos), now);
+        return reserved - now;
+    }
+
+    private static HttpRequest createRequest(String url, Map<String, String> headers) {
+        final var uri = URI.create(resolve(url));
+        final var builder = HttpRequest.newBuilder().uri(uri).timeout(timeouts(uri).request()).GET();
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+
+    private static HttpClient client(URI uri) {
+        return clients.computeIfAbsent(timeouts(uri).connect(), connectTimeout -> HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build());
+    }
+
+    private static Timeouts timeouts(URI uri) {
+        return uri.getHost() != null ? timeouts.getOrDefault(uri.getHost(), DEFAULT_TIMEOUTS) : DEFAULT_TIMEOUTS;
+    }
+
+    /**
+     * @return the url with an overridden base URL replaced
+     */
+    public static String resolve(String url) {
+        for (Map.Entry<String, String> override : baseUrlOverrides.entrySet()) {
+            if (url.startsWith(override.getKey())) {
+                return override.getValue() + url.substring(override.getKey().length());
+            }
+        }
+        return url;
+    }
+
+    /**
+     * @return the bytes transferred and decoded per source by {@link #stream}
+     */
+    public static List<TransferStats> getTransferStats() {
+        return transfers.keySet().stream().map(UpstreamClient::getTransferStats).toList();
+    }
+
+    /**
+     * @return the bytes transferred and decoded for the source by {@link #stream}, all zero if it has not been streamed
+     */
+    public static TransferStats getTransferStats(String source) {
+        final var counters = transfers.getOrDefault(source, new TransferCounters());
+        return new TransferStats(source, counters.responses().sum(), counters.wireBytes().sum(), counters.decodedBytes().sum());
+    }
+
+    public static void setTimeouts(String host, Timeouts hostTimeouts) {
+        timeouts.put(host, hostTimeouts);
+    }
+
+    /**
+     * @param interval the minimum time between the starts of two requests to the host or null for no limit
+     */
+    public static void setMinimumInterval(String host, Duration interval) {
+        if (interval == null) {
+            minimumIntervals.remove(host);
+        } else {
+            minimumIntervals.put(host, interval);
+        }
+    }
+
+    /**
+     * Sends the requests to URLs starting with the base URL to the replacement base URL instead.
+     *
+     * @param baseUrl e.g. {@code https://sahkotin.fi}
+     */
+    public static void overrideBaseUrl(String baseUrl, String replacement) {
+        log.info("overriding upstream " + baseUrl + " with " + replacement);
+        baseUrlOverrides.put(baseUrl, replacement);
+    }
+
+    public static void clearBaseUrlOverrides() {
+        baseUrlOverrides.clear();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.FingridUsageData;
+
+/**
+ * Parsed Fingrid usage uploads keyed by the SHA-256 of the file content, computed by {@link UsageDataReceiver} while
+ * the file is uploaded, so that the same file uploaded again, by the same or another user, is parsed only once. The
+ * least recently used entries are dropped when the cached series hold more than {@link #MAX_ENTRIES} entries in total.
+ */
+@Slf4j
+public class UsageDataCache {
+
+    // About 18 years of hourly data or 4.5 years of 15 minute data, some 10MB of series
+    public static final int MAX_ENTRIES = 640_000;
+
+    private static final Map<String, FingridUsageData> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private static int cachedEntries = 0;
+
+    /**
+     * @param key the {@link #toKey(MessageDigest) key} of the digest of the parsed content
+     * @return the data already cached with the key or the given data after adding it to the cache
+     */
+    public static FingridUsageData put(String key, FingridUsageData usageData) {
+        synchronized (cache) {
+            final var cached = cache.putIfAbsent(key, usageData);
+            if (cached != null) {
+                return cached;
+            }
+            cachedEntries += usageData.series().size();
+            evict();
+            log.info("parsed usage data, cached files: " + cache.size());
+            return usageData;
+        }
+    }
+
+    private static void evict() {
+        final Iterator<FingridUsageData> iterator = cache.values().iterator();
+        // the most recently added entry is kept even if it alone is over the limit
+        while (cachedEntries > MAX_ENTRIES && cache.size() > 1) {
+            cachedEntries -= iterator.next().series().size();
+            iterator.remove();
+        }
+    }
+
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+            cachedEntries = 0;
+        }
+    }
+
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toKey(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+}
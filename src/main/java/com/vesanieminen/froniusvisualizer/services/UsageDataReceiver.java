@@ -0,0 +1,58 @@
+package com.vesanieminen.froniusvisualizer.services;
+
+import com.vaadin.flow.component.upload.Receiver;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.FingridUsageData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.text.ParseException;
+
+/**
+ * Upload receiver that parses a Fingrid usage file while it is being uploaded, instead of buffering the file. Memory
+ * use is proportional to the parsed series, not to the size of the file.
+ */
+public class UsageDataReceiver implements Receiver {
+
+    private FingridUsageParser parser;
+    private MessageDigest digest;
+    private FingridUsageData usageData;
+
+    @Override
+    public OutputStream receiveUpload(String fileName, String mimeType) {
+        final var uploadParser = new FingridUsageParser();
+        final var uploadDigest = UsageDataCache.newDigest();
+        parser = uploadParser;
+        digest = uploadDigest;
+        usageData = null;
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                uploadDigest.update(bytes, offset, length);
+                try {
+                    uploadParser.feed(bytes, offset, length);
+                } catch (ParseException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the data of the last completed upload, shared with earlier uploads of the same content
+     */
+    public FingridUsageData getUsageData() throws ParseException {
+        if (usageData == null && parser != null) {
+            usageData = UsageDataCache.put(UsageDataCache.toKey(digest), parser.finish());
+            parser = null;
+            digest = null;
+        }
+        return usageData;
+    }
+
+}
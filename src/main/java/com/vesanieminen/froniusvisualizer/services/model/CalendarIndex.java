@@ -0,0 +1,156 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+
+/**
+ * Finnish local year / month / day / hour of every hour of a {@link SpotPriceSeries}, packed into one int per hour,
+ * and the index of the first hour of every local day and month.
+ * Date-bucketed queries become binary searches into the start tables instead of converting every hour to a
+ * {@link java.time.ZonedDateTime}.
+ * <p>
+ * Assumes that the local date never goes backwards, which holds for Finland where DST changes at 03:00 / 04:00.
+ */
+public class CalendarIndex {
+
+    public static final CalendarIndex EMPTY = of(SpotPriceSeries.EMPTY);
+
+    private static final int HOUR_BITS = 5;
+    private static final int DAY_BITS = 5;
+    private static final int MONTH_BITS = 4;
+
+    // year | month | day | hour
+    private final int[] packed;
+    private final int[] dayKeys;
+    private final int[] dayStarts;
+    private final int[] monthKeys;
+    private final int[] monthStarts;
+
+    private CalendarIndex(int[] packed, int[] dayKeys, int[] dayStarts, int[] monthKeys, int[] monthStarts) {
+        this.packed = packed;
+        this.dayKeys = dayKeys;
+        this.dayStarts = dayStarts;
+        this.monthKeys = monthKeys;
+        this.monthStarts = monthStarts;
+    }
+
+    public record IndexRange(int from, int to) {
+
+        public int size() {
+            return to - from;
+        }
+
+        public boolean isEmpty() {
+            return from == to;
+        }
+
+        public IntStream stream() {
+            return IntStream.range(from, to);
+        }
+    }
+
+    public static CalendarIndex of(SpotPriceSeries series) {
+        final var rules = fiZoneID.getRules();
+        final var packed = new int[series.size()];
+        final var dayKeys = new int[series.size()];
+        final var dayStarts = new int[series.size()];
+        final var monthKeys = new int[series.size()];
+        final var monthStarts = new int[series.size()];
+        var days = 0;
+        var months = 0;
+        // The offset is looked up again only after the next DST transition and the date only when the day changes
+        var offsetSeconds = 0;
+        var nextTransition = Long.MIN_VALUE;
+        var epochDay = Long.MIN_VALUE;
+        var dayKey = -1;
+        for (int i = 0; i < series.size(); ++i) {
+            final var second = series.epochHour(i) * SpotPriceSeries.SECONDS_PER_HOUR;
+            if (second >= nextTransition) {
+                final var instant = Instant.ofEpochSecond(second);
+                offsetSeconds = rules.getOffset(instant).getTotalSeconds();
+                final var transition = rules.nextTransition(instant);
+                nextTransition = transition != null ? transition.toEpochSecond() : Long.MAX_VALUE;
+            }
+            final var localSecond = second + offsetSeconds;
+            final var localEpochDay = Math.floorDiv(localSecond, 86400);
+            if (localEpochDay != epochDay) {
+                epochDay = localEpochDay;
+                final var date = LocalDate.ofEpochDay(localEpochDay);
+                dayKey = dayKey(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+                dayKeys[days] = dayKey;
+                dayStarts[days++] = i;
+                final var monthKey = dayKey >>> DAY_BITS;
+                if (months == 0 || monthKeys[months - 1] != monthKey) {
+                    monthKeys[months] = monthKey;
+                    monthStarts[months++] = i;
+                }
+            }
+            final var hour = Math.floorMod(localSecond, 86400) / 3600;
+            packed[i] = dayKey << HOUR_BITS | hour;
+        }
+        return new CalendarIndex(packed, Arrays.copyOf(dayKeys, days), Arrays.copyOf(dayStarts, days), Arrays.copyOf(monthKeys, months), Arrays.copyOf(monthStarts, months));
+    }
+
+    private static int dayKey(int year, int month, int day) {
+        return (monthKey(year, month) << DAY_BITS) | day;
+    }
+
+    private static int monthKey(int year, int month) {
+        return year << MONTH_BITS | month;
+    }
+
+    public int size() {
+        return packed.length;
+    }
+
+    public int year(int index) {
+        return packed[index] >>> (HOUR_BITS + DAY_BITS + MONTH_BITS);
+    }
+
+    public int month(int index) {
+        return (packed[index] >>> (HOUR_BITS + DAY_BITS)) & ((1 << MONTH_BITS) - 1);
+    }
+
+    public int day(int index) {
+        return (packed[index] >>> HOUR_BITS) & ((1 << DAY_BITS) - 1);
+    }
+
+    public int hour(int index) {
+        return packed[index] & ((1 << HOUR_BITS) - 1);
+    }
+
+    public IndexRange day(LocalDate date) {
+        final var key = dayKey(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+        return range(dayKeys, dayStarts, key, key + 1);
+    }
+
+    public IndexRange month(YearMonth month) {
+        final var key = monthKey(month.getYear(), month.getMonthValue());
+        return range(monthKeys, monthStarts, key, key + 1);
+    }
+
+    public IndexRange year(Year year) {
+        return range(monthKeys, monthStarts, monthKey(year.getValue(), 0), monthKey(year.getValue() + 1, 0));
+    }
+
+    /**
+     * @return the hours of the buckets with keys in [fromKey, toKey)
+     */
+    private IndexRange range(int[] keys, int[] starts, int fromKey, int toKey) {
+        return new IndexRange(start(keys, starts, fromKey), start(keys, starts, toKey));
+    }
+
+    // Index of the first hour of the first bucket with a key >= the given one
+    private int start(int[] keys, int[] starts, int key) {
+        final var position = Arrays.binarySearch(keys, key);
+        final var bucket = position >= 0 ? position : -position - 1;
+        return bucket < starts.length ? starts[bucket] : packed.length;
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntToDoubleFunction;
+
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+
+/**
+ * Immutable min / max / average / count table of a value of a {@link SpotPriceSeries} keyed by
+ * Finnish local day, month and year. {@link #update} recomputes only the buckets of the given days.
+ */
+public class CalendarRollups {
+
+    public static final CalendarRollups EMPTY = new CalendarRollups(Map.of(), Map.of(), Map.of());
+
+    private final Map<LocalDate, Rollup> days;
+    private final Map<YearMonth, Rollup> months;
+    private final Map<Year, Rollup> years;
+
+    private CalendarRollups(Map<LocalDate, Rollup> days, Map<YearMonth, Rollup> months, Map<Year, Rollup> years) {
+        this.days = days;
+        this.months = months;
+        this.years = years;
+    }
+
+    public record Rollup(int count, double min, double max, double sum) {
+
+        public static final Rollup EMPTY = new Rollup(0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0);
+
+        public double average() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        public Rollup combine(Rollup other) {
+            return new Rollup(count + other.count, Math.min(min, other.min), Math.max(max, other.max), sum + other.sum);
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    public static CalendarRollups of(SpotPriceSeries series, IntToDoubleFunction value) {
+        return EMPTY.update(series, value, changedDays(SpotPriceSeries.EMPTY, series));
+    }
+
+    public Rollup day(LocalDate date) {
+        return days.getOrDefault(date, Rollup.EMPTY);
+    }
+
+    public Rollup month(YearMonth month) {
+        return months.getOrDefault(month, Rollup.EMPTY);
+    }
+
+    public Rollup year(Year year) {
+        return years.getOrDefault(year, Rollup.EMPTY);
+    }
+
+    /**
+     * @return a copy of this table where the buckets containing the changed days are recomputed from the series
+     */
+    public CalendarRollups update(SpotPriceSeries series, IntToDoubleFunction value, Set<LocalDate> changedDays) {
+        if (changedDays.isEmpty()) {
+            return this;
+        }
+        final var newDays = new HashMap<>(days);
+        final var changedMonths = new HashSet<YearMonth>();
+        for (LocalDate date : changedDays) {
+            final var fromIndex = series.lowerBound(date.atStartOfDay(fiZoneID).toInstant());
+            final var toIndex = series.lowerBound(date.plusDays(1).atStartOfDay(fiZoneID).toInstant());
+            var count = 0;
+            var min = Double.POSITIVE_INFINITY;
+            var max = Double.NEGATIVE_INFINITY;
+            var sum = 0d;
+            for (int i = fromIndex; i < toIndex; ++i) {
+                final var v = value.applyAsDouble(i);
+                ++count;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+            }
+            putOrRemove(newDays, date, new Rollup(count, min, max, sum));
+            changedMonths.add(YearMonth.from(date));
+        }
+
+        final var newMonths = new HashMap<>(months);
+        final var changedYears = new HashSet<Year>();
+        for (YearMonth month : changedMonths) {
+            var rollup = Rollup.EMPTY;
+            for (int day = 1; day <= month.lengthOfMonth(); ++day) {
+                rollup = rollup.combine(newDays.getOrDefault(month.atDay(day), Rollup.EMPTY));
+            }
+            putOrRemove(newMonths, month, rollup);
+            changedYears.add(Year.of(month.getYear()));
+        }
+
+        final var newYears = new HashMap<>(years);
+        for (Year year : changedYears) {
+            var rollup = Rollup.EMPTY;
+            for (int month = 1; month <= 12; ++month) {
+                rollup = rollup.combine(newMonths.getOrDefault(year.atMonth(month), Rollup.EMPTY));
+            }
+            putOrRemove(newYears, year, rollup);
+        }
+        return new CalendarRollups(Collections.unmodifiableMap(newDays), Collections.unmodifiableMap(newMonths), Collections.unmodifiableMap(newYears));
+    }
+
+    private static <K> void putOrRemove(Map<K, Rollup> map, K key, Rollup rollup) {
+        if (rollup.isEmpty()) {
+            map.remove(key);
+        } else {
+            map.put(key, rollup);
+        }
+    }
+
+    /**
+     * @return the Finnish local days that have an added, removed or changed hour between the two series
+     */
+    public static Set<LocalDate> changedDays(SpotPriceSeries previous, SpotPriceSeries next) {
+        final var changed = new HashSet<LocalDate>();
+        collectChangedDays(previous, next, changed, true);
+        collectChangedDays(next, previous, changed, false);
+        return changed;
+    }
+
+    private static void collectChangedDays(SpotPriceSeries source, SpotPriceSeries other, Set<LocalDate> changed, boolean comparePrices) {
+        // the hours of the last collected day, to avoid converting every hour of a fully changed day to a date
+        long dayStart = 0;
+        long dayEnd = 0;
+        for (int i = 0; i < source.size(); ++i) {
+            final var epochHour = source.epochHour(i);
+            final var otherIndex = other.indexOfEpochHour(epochHour);
+            final var isChanged = otherIndex < 0 || (comparePrices && Double.compare(source.price(i), other.price(otherIndex)) != 0);
+            if (!isChanged || (dayStart <= epochHour && epochHour < dayEnd)) {
+                continue;
+            }
+            final var date = source.instant(i).atZone(fiZoneID).toLocalDate();
+            changed.add(date);
+            dayStart = SpotPriceSeries.toEpochHour(date.atStartOfDay(fiZoneID).toInstant());
+            dayEnd = SpotPriceSeries.toEpochHour(date.plusDays(1).atStartOfDay(fiZoneID).toInstant());
+        }
+    }
+
+}
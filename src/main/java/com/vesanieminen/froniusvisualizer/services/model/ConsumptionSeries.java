@@ -0,0 +1,151 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Immutable metered consumption (or production) series stored as two primitive columns sorted by time. Values are
+ * in kWh per entry and the entries start at whole seconds.
+ */
+public class ConsumptionSeries {
+
+    public static final ConsumptionSeries EMPTY = new ConsumptionSeries(new long[0], new double[0]);
+
+    private final long[] epochSeconds;
+    private final double[] values;
+    // Computed on first use, threads racing on it compute the same value
+    private String contentHash;
+
+    private ConsumptionSeries(long[] epochSeconds, double[] values) {
+        this.epochSeconds = epochSeconds;
+        this.values = values;
+    }
+
+    /**
+     * Creates a series from the given start times and values. The input is sorted by time and a later value for an
+     * already seen start time replaces the earlier one.
+     */
+    public static ConsumptionSeries of(long[] epochSeconds, double[] values) {
+        if (epochSeconds.length != values.length) {
+            throw new IllegalArgumentException("Start times and values must have the same length");
+        }
+        if (isStrictlyIncreasing(epochSeconds)) {
+            return new ConsumptionSeries(epochSeconds.clone(), values.clone());
+        }
+        final var order = new Integer[epochSeconds.length];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        // stable sort keeps the original order for duplicates so that the last one wins below
+        Arrays.sort(order, (a, b) -> Long.compare(epochSeconds[a], epochSeconds[b]));
+        final var sortedSeconds = new long[epochSeconds.length];
+        final var sortedValues = new double[values.length];
+        int size = 0;
+        for (int i : order) {
+            if (size > 0 && sortedSeconds[size - 1] == epochSeconds[i]) {
+                sortedValues[size - 1] = values[i];
+            } else {
+                sortedSeconds[size] = epochSeconds[i];
+                sortedValues[size] = values[i];
+                ++size;
+            }
+        }
+        return new ConsumptionSeries(Arrays.copyOf(sortedSeconds, size), Arrays.copyOf(sortedValues, size));
+    }
+
+    /**
+     * Creates a series from the entries of the map. Instants with a fraction of a second are left out as they never
+     * match a spot price hour.
+     */
+    public static ConsumptionSeries of(Map<Instant, Double> data) {
+        final var epochSeconds = new long[data.size()];
+        final var values = new double[data.size()];
+        var size = 0;
+        for (Map.Entry<Instant, Double> entry : data.entrySet()) {
+            if (entry.getKey().getNano() == 0) {
+                epochSeconds[size] = entry.getKey().getEpochSecond();
+                values[size++] = entry.getValue();
+            }
+        }
+        return of(Arrays.copyOf(epochSeconds, size), Arrays.copyOf(values, size));
+    }
+
+    /**
+     * @return the SHA-256 of the start times and values, equal for series with equal content however they were read
+     */
+    public String contentHash() {
+        var hash = contentHash;
+        if (hash == null) {
+            final MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            final var buffer = ByteBuffer.allocate(4096 * 2 * Long.BYTES);
+            for (int i = 0; i < epochSeconds.length; ++i) {
+                if (!buffer.hasRemaining()) {
+                    digest.update(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+                buffer.putLong(epochSeconds[i]).putLong(Double.doubleToLongBits(values[i]));
+            }
+            digest.update(buffer.array(), 0, buffer.position());
+            hash = HexFormat.of().formatHex(digest.digest());
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    private static boolean isStrictlyIncreasing(long[] values) {
+        for (int i = 1; i < values.length; ++i) {
+            if (values[i - 1] >= values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return epochSeconds.length;
+    }
+
+    public boolean isEmpty() {
+        return epochSeconds.length == 0;
+    }
+
+    public long epochSecond(int index) {
+        return epochSeconds[index];
+    }
+
+    public Instant instant(int index) {
+        return Instant.ofEpochSecond(epochSeconds[index]);
+    }
+
+    public double value(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return the index of the first entry starting at or after the given instant, or {@link #size()} if there is none
+     */
+    public int lowerBound(Instant instant) {
+        final var second = instant.getNano() == 0 ? instant.getEpochSecond() : instant.getEpochSecond() + 1;
+        final var position = Arrays.binarySearch(epochSeconds, second);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * @return the index of the first entry starting after the given instant, or {@link #size()} if there is none
+     */
+    public int upperBound(Instant instant) {
+        final var position = Arrays.binarySearch(epochSeconds, instant.getEpochSecond());
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+/**
+ * An electricity offer to compare. Prices are in c/kWh and the monthly fee in €, all including VAT as retailers
+ * quote them to consumers.
+ */
+public interface Contract {
+
+    String name();
+
+    double monthlyFee();
+
+    /**
+     * @return the cost in cents of the energy in the aggregates without the monthly fees
+     */
+    double energyCost(UsageAggregates aggregates);
+
+    /**
+     * Spot price with VAT plus a margin.
+     */
+    record Spot(String name, double margin, double monthlyFee) implements Contract {
+        @Override
+        public double energyCost(UsageAggregates aggregates) {
+            return aggregates.spotCost() + margin * aggregates.consumption();
+        }
+    }
+
+    record Fixed(String name, double price, double monthlyFee) implements Contract {
+        @Override
+        public double energyCost(UsageAggregates aggregates) {
+            return price * aggregates.consumption();
+        }
+    }
+
+    /**
+     * Day price from 7 to 22 Finnish time and night price for the rest of the day.
+     */
+    record TimeOfUse(String name, double dayPrice, double nightPrice, double monthlyFee) implements Contract {
+
+        @Override
+        public double energyCost(UsageAggregates aggregates) {
+            var cost = 0d;
+            for (int hour = 0; hour < 24; ++hour) {
+                final var isDay = hour >= TransferTariff.DAY_START_HOUR && hour < TransferTariff.NIGHT_START_HOUR;
+                cost += (isDay ? dayPrice : nightPrice) * aggregates.consumptionByHour(hour);
+            }
+            return cost;
+        }
+    }
+
+}
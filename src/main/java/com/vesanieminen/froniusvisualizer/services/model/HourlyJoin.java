@@ -0,0 +1,132 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Aligns a {@link ConsumptionSeries} with a {@link SpotPriceSeries} by walking both sorted series once with a cursor
+ * each, instead of looking every consumption hour up separately. Hours that only one of the series has within the
+ * joined range are reported as gaps.
+ */
+public class HourlyJoin {
+
+    // The entries walked between the checks for a cancelled calculation, about a year of 15 minute entries
+    static final int CANCELLATION_CHECK_INTERVAL = 32768;
+
+    public interface Visitor {
+        void match(int consumptionIndex, int spotIndex);
+    }
+
+    public enum Missing {
+        SPOT,
+        CONSUMPTION
+    }
+
+    /**
+     * Consecutive hours in [start, end) that are missing from one of the series.
+     */
+    public record Gap(Missing missing, Instant start, Instant end) {
+    }
+
+    /**
+     * @param matched                 consumption entries with a spot price
+     * @param missingSpotHours        hours with consumption but without a spot price
+     * @param missingConsumptionHours spot hours between the first and the last joined consumption entry without consumption
+     */
+    public record Coverage(int matched, int missingSpotHours, int missingConsumptionHours, List<Gap> gaps) {
+
+        public static final Coverage EMPTY = new Coverage(0, 0, 0, List.of());
+
+        public boolean isComplete() {
+            return gaps.isEmpty();
+        }
+    }
+
+    /**
+     * Calls the visitor in time order for every consumption entry in [from, to) that starts within an hour of the
+     * spot series. Entries shorter than an hour, such as the 15 minute ones, are all matched with the price of the
+     * hour they start in.
+     *
+     * @throws CancellationException if the thread is interrupted during the walk
+     */
+    public static Coverage join(ConsumptionSeries consumption, int from, int to, SpotPriceSeries spot, Visitor visitor) {
+        if (from >= to) {
+            return Coverage.EMPTY;
+        }
+        final var gaps = new GapCollector();
+        var matched = 0;
+        var spotIndex = spot.lowerBound(toEpochHour(consumption.epochSecond(from)));
+        var matchedSpotIndex = -1;
+        for (int i = from; i < to; ++i) {
+            if ((i - from) % CANCELLATION_CHECK_INTERVAL == 0 && Thread.interrupted()) {
+                throw new CancellationException();
+            }
+            final var epochHour = toEpochHour(consumption.epochSecond(i));
+            while (spotIndex < spot.size() && spot.epochHour(spotIndex) < epochHour) {
+                if (spotIndex != matchedSpotIndex) {
+                    gaps.add(Missing.CONSUMPTION, spot.epochHour(spotIndex));
+                }
+                ++spotIndex;
+            }
+            if (spotIndex < spot.size() && spot.epochHour(spotIndex) == epochHour) {
+                visitor.match(i, spotIndex);
+                matchedSpotIndex = spotIndex;
+                ++matched;
+            } else {
+                gaps.add(Missing.SPOT, epochHour);
+            }
+        }
+        return new Coverage(matched, gaps.missingSpotHours, gaps.missingConsumptionHours, gaps.build());
+    }
+
+    private static long toEpochHour(long epochSecond) {
+        return Math.floorDiv(epochSecond, SpotPriceSeries.SECONDS_PER_HOUR);
+    }
+
+    // Merges the missing hours, which arrive in time order, into ranges
+    private static class GapCollector {
+        private final List<Gap> gaps = new ArrayList<>();
+        private Missing missing;
+        private long startHour;
+        private long endHour;
+        private int missingSpotHours;
+        private int missingConsumptionHours;
+
+        void add(Missing side, long epochHour) {
+            if (side == missing && epochHour < endHour) {
+                return;
+            }
+            if (side == Missing.SPOT) {
+                ++missingSpotHours;
+            } else {
+                ++missingConsumptionHours;
+            }
+            if (side == missing && epochHour == endHour) {
+                ++endHour;
+                return;
+            }
+            flush();
+            missing = side;
+            startHour = epochHour;
+            endHour = epochHour + 1;
+        }
+
+        private void flush() {
+            if (missing != null) {
+                gaps.add(new Gap(missing, toInstant(startHour), toInstant(endHour)));
+            }
+        }
+
+        private static Instant toInstant(long epochHour) {
+            return Instant.ofEpochSecond(epochHour * SpotPriceSeries.SECONDS_PER_HOUR);
+        }
+
+        List<Gap> build() {
+            flush();
+            return List.copyOf(gaps);
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable view of all fetched market data. A refresh creates a copy with its part replaced, so a reader holding a
+ * snapshot never sees a partially updated state. Parts that have not been fetched yet are null.
+ */
+public record MarketSnapshot(
+        SpotPrices spot,
+        NordpoolResponse nordpoolResponse,
+        List<NordpoolPrice> nordpoolPrices,
+        FingridRealtimeResponse fingridRealtime,
+        LocalDateTime fingridDataUpdated,
+        List<FingridLiteResponse> windEstimate,
+        List<FingridLiteResponse> productionEstimate,
+        List<FingridLiteResponse> consumptionEstimate,
+        List<SpotHintaResponse> temperatures) {
+
+    public static final MarketSnapshot EMPTY = new MarketSnapshot(null, null, null, null, null, null, null, null, null);
+
+    /**
+     * The spot price series and the data derived from it. {@code pricesWithVat} is aligned with the series and must
+     * not be modified.
+     *
+     * @param version incremented on every update of the spot prices, results calculated from the prices can be cached
+     *                by it
+     */
+    public record SpotPrices(SpotPriceSeries series, CalendarIndex calendar, double[] pricesWithVat, CalendarRollups rollups, CalendarRollups withVatRollups, long version) {
+
+        public double priceWithVat(int index) {
+            return pricesWithVat[index];
+        }
+
+        public double price(int index, boolean hasVat) {
+            return hasVat ? pricesWithVat[index] : series.price(index);
+        }
+
+        public CalendarRollups rollups(boolean hasVat) {
+            return hasVat ? withVatRollups : rollups;
+        }
+    }
+
+    public MarketSnapshot withSpot(SpotPrices spot) {
+        return new MarketSnapshot(spot, nordpoolResponse, nordpoolPrices, fingridRealtime, fingridDataUpdated, windEstimate, productionEstimate, consumptionEstimate, temperatures);
+    }
+
+    public MarketSnapshot withNordpool(NordpoolResponse nordpoolResponse, List<NordpoolPrice> nordpoolPrices) {
+        return new MarketSnapshot(spot, nordpoolResponse, List.copyOf(nordpoolPrices), fingridRealtime, fingridDataUpdated, windEstimate, productionEstimate, consumptionEstimate, temperatures);
+    }
+
+    public MarketSnapshot withFingridRealtime(FingridRealtimeResponse fingridRealtime, LocalDateTime fingridDataUpdated) {
+        return new MarketSnapshot(spot, nordpoolResponse, nordpoolPrices, fingridRealtime, fingridDataUpdated, windEstimate, productionEstimate, consumptionEstimate, temperatures);
+    }
+
+    public MarketSnapshot withWindEstimate(List<FingridLiteResponse> windEstimate) {
+        return new MarketSnapshot(spot, nordpoolResponse, nordpoolPrices, fingridRealtime, fingridDataUpdated, List.copyOf(windEstimate), productionEstimate, consumptionEstimate, temperatures);
+    }
+
+    public MarketSnapshot withProductionEstimate(List<FingridLiteResponse> productionEstimate) {
+        return new MarketSnapshot(spot, nordpoolResponse, nordpoolPrices, fingridRealtime, fingridDataUpdated, windEstimate, List.copyOf(productionEstimate), consumptionEstimate, temperatures);
+    }
+
+    public MarketSnapshot withConsumptionEstimate(List<FingridLiteResponse> consumptionEstimate) {
+        return new MarketSnapshot(spot, nordpoolResponse, nordpoolPrices, fingridRealtime, fingridDataUpdated, windEstimate, productionEstimate, List.copyOf(consumptionEstimate), temperatures);
+    }
+
+    public MarketSnapshot withTemperatures(List<SpotHintaResponse> temperatures) {
+        return new MarketSnapshot(spot, nordpoolResponse, nordpoolPrices, fingridRealtime, fingridDataUpdated, windEstimate, productionEstimate, consumptionEstimate, List.copyOf(temperatures));
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable hourly spot price series stored as two primitive columns sorted by time.
+ * Prices are in c/kWh without VAT. The slot table maps every hour between the first
+ * and the last entry to the index of the first entry at or after it, so both lookups by
+ * instant and range boundaries are O(1) even when the series has missing hours.
+ */
+public class SpotPriceSeries {
+
+    public static final long SECONDS_PER_HOUR = 3600;
+    public static final SpotPriceSeries EMPTY = new SpotPriceSeries(new long[0], new double[0]);
+
+    private final long[] epochHours;
+    private final double[] prices;
+    private final int[] slots;
+
+    private SpotPriceSeries(long[] epochHours, double[] prices) {
+        this.epochHours = epochHours;
+        this.prices = prices;
+        if (epochHours.length == 0) {
+            slots = new int[0];
+            return;
+        }
+        slots = new int[Math.toIntExact(epochHours[epochHours.length - 1] - epochHours[0] + 1)];
+        int index = 0;
+        for (int slot = 0; slot < slots.length; ++slot) {
+            if (epochHours[index] < epochHours[0] + slot) {
+                ++index;
+            }
+            slots[slot] = index;
+        }
+    }
+
+    /**
+     * Creates a series from the given hours and prices. The input is sorted by time and a later
+     * value for an already seen hour replaces the earlier one.
+     */
+    public static SpotPriceSeries of(long[] epochHours, double[] prices) {
+        if (epochHours.length != prices.length) {
+            throw new IllegalArgumentException("Hours and prices must have the same length");
+        }
+        if (isStrictlyIncreasing(epochHours)) {
+            return new SpotPriceSeries(epochHours.clone(), prices.clone());
+        }
+        final var order = new Integer[epochHours.length];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        // stable sort keeps the original order for duplicates so that the last one wins below
+        Arrays.sort(order, (a, b) -> Long.compare(epochHours[a], epochHours[b]));
+        final var sortedHours = new long[epochHours.length];
+        final var sortedPrices = new double[prices.length];
+        int size = 0;
+        for (int i : order) {
+            if (size > 0 && sortedHours[size - 1] == epochHours[i]) {
+                sortedPrices[size - 1] = prices[i];
+            } else {
+                sortedHours[size] = epochHours[i];
+                sortedPrices[size] = prices[i];
+                ++size;
+            }
+        }
+        return new SpotPriceSeries(Arrays.copyOf(sortedHours, size), Arrays.copyOf(sortedPrices, size));
+    }
+
+    /**
+     * Creates a series that takes ownership of the arrays without copying or sorting them, for readers that have
+     * already checked that the hours are strictly increasing.
+     *
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public static SpotPriceSeries ofSorted(long[] epochHours, double[] prices) {
+        if (epochHours.length != prices.length) {
+            throw new IllegalArgumentException("Hours and prices must have the same length");
+        }
+        return new SpotPriceSeries(epochHours, prices);
+    }
+
+    private static boolean isStrictlyIncreasing(long[] values) {
+        for (int i = 1; i < values.length; ++i) {
+            if (values[i - 1] >= values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a series from the Pakastin response where the prices are in €/MWh.
+     */
+    public static SpotPriceSeries of(List<PakastinResponse.Price> pakastinPrices) {
+        final var hours = new long[pakastinPrices.size()];
+        final var prices = new double[pakastinPrices.size()];
+        for (int i = 0; i < hours.length; ++i) {
+            final var price = pakastinPrices.get(i);
+            hours[i] = toEpochHour(price.date);
+            prices[i] = price.value / 10;
+        }
+        return of(hours, prices);
+    }
+
+    /**
+     * @return a new series with the hours of both series where the prices of the other series replace the prices of this one
+     */
+    public SpotPriceSeries merge(SpotPriceSeries other) {
+        final var hours = Arrays.copyOf(epochHours, epochHours.length + other.epochHours.length);
+        final var values = Arrays.copyOf(prices, prices.length + other.prices.length);
+        System.arraycopy(other.epochHours, 0, hours, epochHours.length, other.epochHours.length);
+        System.arraycopy(other.prices, 0, values, prices.length, other.prices.length);
+        return of(hours, values);
+    }
+
+    /**
+     * @return true when there is a price for every hour between the start and the end of the series
+     */
+    public boolean isContiguous() {
+        return slots.length == epochHours.length;
+    }
+
+    /**
+     * Collects hours and prices into growing primitive arrays, for decoders that produce a series without
+     * intermediate objects.
+     */
+    public static class Builder {
+        private long[] epochHours = new long[1024];
+        private double[] prices = new double[1024];
+        private int size = 0;
+
+        public Builder add(long epochHour, double price) {
+            if (size == epochHours.length) {
+                epochHours = Arrays.copyOf(epochHours, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            epochHours[size] = epochHour;
+            prices[size] = price;
+            ++size;
+            return this;
+        }
+
+        public SpotPriceSeries build() {
+            return of(Arrays.copyOf(epochHours, size), Arrays.copyOf(prices, size));
+        }
+    }
+
+    public static long toEpochHour(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), SECONDS_PER_HOUR);
+    }
+
+    private static boolean isHourStart(Instant instant) {
+        return instant.getNano() == 0 && instant.getEpochSecond() % SECONDS_PER_HOUR == 0;
+    }
+
+    public int size() {
+        return epochHours.length;
+    }
+
+    public boolean isEmpty() {
+        return epochHours.length == 0;
+    }
+
+    public long epochHour(int index) {
+        return epochHours[index];
+    }
+
+    public Instant instant(int index) {
+        return Instant.ofEpochSecond(epochHours[index] * SECONDS_PER_HOUR);
+    }
+
+    public double price(int index) {
+        return prices[index];
+    }
+
+    public Instant start() {
+        return instant(0);
+    }
+
+    public Instant end() {
+        return instant(epochHours.length - 1);
+    }
+
+    /**
+     * @return the index of the given hour or -1 when the series has no price for it
+     */
+    public int indexOfEpochHour(long epochHour) {
+        final var index = lowerBound(epochHour);
+        return index < epochHours.length && epochHours[index] == epochHour ? index : -1;
+    }
+
+    /**
+     * @return the index of the first entry at or after the given hour, or {@link #size()} if there is none
+     */
+    public int lowerBound(long epochHour) {
+        if (slots.length == 0 || epochHour <= epochHours[0]) {
+            return 0;
+        }
+        final var slot = epochHour - epochHours[0];
+        return slot >= slots.length ? epochHours.length : slots[(int) slot];
+    }
+
+    /**
+     * @return the index of the first entry starting at or after the given instant, or {@link #size()} if there is none
+     */
+    public int lowerBound(Instant instant) {
+        final var epochHour = toEpochHour(instant);
+        return lowerBound(isHourStart(instant) ? epochHour : epochHour + 1);
+    }
+
+    /**
+     * @return the index of the given instant or -1 when it is not the start of an hour in the series
+     */
+    public int indexOf(Instant instant) {
+        return isHourStart(instant) ? indexOfEpochHour(toEpochHour(instant)) : -1;
+    }
+
+    public boolean contains(Instant instant) {
+        return indexOf(instant) >= 0;
+    }
+
+}
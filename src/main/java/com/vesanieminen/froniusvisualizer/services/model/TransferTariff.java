@@ -0,0 +1,153 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+
+/**
+ * Transfer and tax price of a distribution system operator in c/kWh, compiled into a table by the Finnish local
+ * month and hour of the week so that the price of a consumption entry is one lookup by its local time.
+ */
+public class TransferTariff {
+
+    public static final int HOURS_PER_WEEK = 7 * 24;
+    public static final int DAY_START_HOUR = 7;
+    public static final int NIGHT_START_HOUR = 22;
+    public static final Set<Month> WINTER = EnumSet.of(Month.NOVEMBER, Month.DECEMBER, Month.JANUARY, Month.FEBRUARY, Month.MARCH);
+    public static final Set<DayOfWeek> MONDAY_TO_SATURDAY = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.SATURDAY);
+    public static final TransferTariff NONE = flat(0);
+
+    // [(month - 1) * HOURS_PER_WEEK + hour of week]
+    private final double[] prices;
+
+    private TransferTariff(double[] prices) {
+        this.prices = prices;
+    }
+
+    public static TransferTariff flat(double price) {
+        return builder(price).build();
+    }
+
+    /**
+     * Day price from 7 to 22 Finnish time and night price for the rest of the day, e.g. Caruna's and Helen's
+     * night transfer.
+     */
+    public static TransferTariff dayNight(double dayPrice, double nightPrice) {
+        return builder(nightPrice).price(dayPrice, EnumSet.allOf(Month.class), EnumSet.allOf(DayOfWeek.class), DAY_START_HOUR, NIGHT_START_HOUR).build();
+    }
+
+    /**
+     * Winter weekday price from November to March on Monday to Saturday from 7 to 22 Finnish time and the other price
+     * for the rest of the time, e.g. Caruna's seasonal transfer.
+     */
+    public static TransferTariff seasonal(double winterWeekdayPrice, double otherPrice) {
+        return builder(otherPrice).price(winterWeekdayPrice, WINTER, MONDAY_TO_SATURDAY, DAY_START_HOUR, NIGHT_START_HOUR).build();
+    }
+
+    /**
+     * @param price the price of the hours that no period of the tariff covers
+     */
+    public static Builder builder(double price) {
+        return new Builder(price);
+    }
+
+    /**
+     * @param month      1 - 12
+     * @param hourOfWeek 0 for Monday 00-01 to 167 for Sunday 23-24
+     */
+    public double price(int month, int hourOfWeek) {
+        return prices[(month - 1) * HOURS_PER_WEEK + hourOfWeek];
+    }
+
+    /**
+     * Prices every consumption entry in [from, to) by its own local time, whether or not there is a spot price for it.
+     *
+     * @return c of the consumption in kWh
+     * @throws CancellationException if the thread is interrupted during the pass
+     */
+    public double cost(ConsumptionSeries consumption, int from, int to) {
+        final var rules = fiZoneID.getRules();
+        var total = 0d;
+        // The offset is looked up again only after the next DST transition and the date only when the day changes
+        var offsetSeconds = 0;
+        var nextTransition = Long.MIN_VALUE;
+        var epochDay = Long.MIN_VALUE;
+        var monthOffset = 0;
+        var dayOfWeek = 0;
+        for (int i = from; i < to; ++i) {
+            if ((i - from) % HourlyJoin.CANCELLATION_CHECK_INTERVAL == 0 && Thread.interrupted()) {
+                throw new CancellationException();
+            }
+            final var second = consumption.epochSecond(i);
+            if (second >= nextTransition) {
+                final var instant = Instant.ofEpochSecond(second);
+                offsetSeconds = rules.getOffset(instant).getTotalSeconds();
+                final var transition = rules.nextTransition(instant);
+                nextTransition = transition != null ? transition.toEpochSecond() : Long.MAX_VALUE;
+            }
+            final var localSecond = second + offsetSeconds;
+            final var localEpochDay = Math.floorDiv(localSecond, 86400);
+            if (localEpochDay != epochDay) {
+                epochDay = localEpochDay;
+                final var date = LocalDate.ofEpochDay(localEpochDay);
+                monthOffset = (date.getMonthValue() - 1) * HOURS_PER_WEEK;
+                dayOfWeek = date.getDayOfWeek().ordinal();
+            }
+            final var hourOfWeek = dayOfWeek * 24 + Math.floorMod(localSecond, 86400) / 3600;
+            total += prices[monthOffset + hourOfWeek] * consumption.value(i);
+        }
+        return total;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TransferTariff other && Arrays.equals(prices, other.prices);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(prices);
+    }
+
+    public static class Builder {
+        private final double[] prices = new double[12 * HOURS_PER_WEEK];
+
+        private Builder(double price) {
+            Arrays.fill(prices, price);
+        }
+
+        /**
+         * Sets the price of the hours [fromHour, toHour) of the days in the months. A later period overrides an
+         * earlier one where they overlap and a period with fromHour after toHour wraps over midnight.
+         */
+        public Builder price(double price, Set<Month> months, Set<DayOfWeek> days, int fromHour, int toHour) {
+            if (fromHour < 0 || fromHour > 23 || toHour < 0 || toHour > 24) {
+                throw new IllegalArgumentException("Invalid hours: " + fromHour + " - " + toHour);
+            }
+            for (Month month : months) {
+                for (DayOfWeek day : days) {
+                    final var dayStart = month.ordinal() * HOURS_PER_WEEK + day.ordinal() * 24;
+                    for (int hour = 0; hour < 24; ++hour) {
+                        final var included = fromHour <= toHour ? hour >= fromHour && hour < toHour : hour >= fromHour || hour < toHour;
+                        if (included) {
+                            prices[dayStart + hour] = price;
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+
+        public TransferTariff build() {
+            return new TransferTariff(prices.clone());
+        }
+    }
+
+}
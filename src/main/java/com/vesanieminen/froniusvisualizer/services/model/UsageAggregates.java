@@ -0,0 +1,18 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+/**
+ * Sums of a consumption series over the hours that have a spot price, from which the cost of any {@link Contract}
+ * follows without another pass over the hours.
+ *
+ * @param consumption       kWh
+ * @param spotCost          the consumption of every hour times the spot price with VAT of the hour, in cents
+ * @param consumptionByHour kWh by the Finnish local hour of the day, must not be modified
+ * @param months            the number of Finnish calendar months that have consumption
+ */
+public record UsageAggregates(double consumption, double spotCost, double[] consumptionByHour, int months, HourlyJoin.Coverage coverage) {
+
+    public double consumptionByHour(int hour) {
+        return consumptionByHour[hour];
+    }
+
+}
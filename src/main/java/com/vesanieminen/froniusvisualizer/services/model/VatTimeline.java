@@ -0,0 +1,76 @@
+package com.vesanieminen.froniusvisualizer.services.model;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+
+/**
+ * VAT multipliers of electricity by the time they came into effect. A new rate is one more entry in {@link #FINLAND}.
+ */
+public class VatTimeline {
+
+    public static final VatTimeline FINLAND = new VatTimeline(1.24)
+            .from(startOfDay(2022, 12, 1), 1.10)
+            .from(startOfDay(2023, 5, 1), 1.24)
+            .from(startOfDay(2024, 9, 1), 1.255);
+
+    // Epoch seconds when the multiplier of the same index came into effect, the first one is Long.MIN_VALUE
+    private final long[] starts;
+    private final double[] multipliers;
+
+    public VatTimeline(double initialMultiplier) {
+        this(new long[]{Long.MIN_VALUE}, new double[]{initialMultiplier});
+    }
+
+    private VatTimeline(long[] starts, double[] multipliers) {
+        this.starts = starts;
+        this.multipliers = multipliers;
+    }
+
+    private static Instant startOfDay(int year, int month, int day) {
+        return ZonedDateTime.of(year, month, day, 0, 0, 0, 0, fiZoneID).toInstant();
+    }
+
+    /**
+     * @return a copy of this timeline with the multiplier in effect from the given instant on
+     */
+    public VatTimeline from(Instant start, double multiplier) {
+        final var second = start.getEpochSecond();
+        if (second <= starts[starts.length - 1]) {
+            throw new IllegalArgumentException("VAT periods must be added in order: " + start);
+        }
+        final var newStarts = Arrays.copyOf(starts, starts.length + 1);
+        final var newMultipliers = Arrays.copyOf(multipliers, multipliers.length + 1);
+        newStarts[starts.length] = second;
+        newMultipliers[multipliers.length] = multiplier;
+        return new VatTimeline(newStarts, newMultipliers);
+    }
+
+    public double multiplier(Instant instant) {
+        final var second = instant.getEpochSecond();
+        var period = starts.length - 1;
+        while (starts[period] > second) {
+            --period;
+        }
+        return multipliers[period];
+    }
+
+    /**
+     * @return the prices of the series multiplied by the VAT of each hour, in the order of the series
+     */
+    public double[] withVat(SpotPriceSeries series) {
+        final var prices = new double[series.size()];
+        var period = 0;
+        for (int i = 0; i < prices.length; ++i) {
+            final var second = series.epochHour(i) * SpotPriceSeries.SECONDS_PER_HOUR;
+            while (period + 1 < starts.length && starts[period + 1] <= second) {
+                ++period;
+            }
+            prices[i] = series.price(i) * multipliers[period];
+        }
+        return prices;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.vesanieminen.froniusvisualizer.util;
+
+import java.time.Instant;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parser for the fixed-format ISO-8601 timestamps of the upstream APIs, yyyy-MM-ddTHH:mm[:ss[.fraction]] followed by
+ * Z, ±HH:mm, ±HHmm or ±HH. Reads the digits at fixed positions instead of going through a {@link DateTimeFormatter}
+ * and falls back to the formatter for any other text.
+ */
+public class IsoDateTimes {
+
+    private static final int INVALID = Integer.MIN_VALUE;
+    private static final long INVALID_SECOND = Long.MIN_VALUE;
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    public static Instant parseInstant(String text) {
+        final var fractionEnd = fractionEnd(text);
+        final var offsetSeconds = fractionEnd < 0 ? INVALID : parseOffsetSeconds(text, fractionEnd);
+        final var localEpochSecond = offsetSeconds == INVALID ? INVALID_SECOND : parseLocalEpochSecond(text);
+        if (localEpochSecond == INVALID_SECOND) {
+            return DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(text, Instant::from);
+        }
+        return Instant.ofEpochSecond(localEpochSecond - offsetSeconds, parseNanos(text, fractionEnd));
+    }
+
+    public static ZonedDateTime parseZonedDateTime(String text) {
+        final var fractionEnd = fractionEnd(text);
+        final var offsetSeconds = fractionEnd < 0 ? INVALID : parseOffsetSeconds(text, fractionEnd);
+        final var localEpochSecond = offsetSeconds == INVALID ? INVALID_SECOND : parseLocalEpochSecond(text);
+        if (localEpochSecond == INVALID_SECOND) {
+            return ZonedDateTime.parse(text);
+        }
+        final var instant = Instant.ofEpochSecond(localEpochSecond - offsetSeconds, parseNanos(text, fractionEnd));
+        return ZonedDateTime.ofInstant(instant, ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+
+    /**
+     * @return the local date and time of the text as seconds since 1970-01-01T00:00 or {@link #INVALID_SECOND}
+     */
+    private static long parseLocalEpochSecond(String text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T' || text.charAt(13) != ':') {
+            return INVALID_SECOND;
+        }
+        final var year = digits(text, 0, 4);
+        final var month = digits(text, 5, 2);
+        final var day = digits(text, 8, 2);
+        final var hour = digits(text, 11, 2);
+        final var minute = digits(text, 14, 2);
+        final var second = hasSeconds(text) ? digits(text, 17, 2) : 0;
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID_SECOND;
+        }
+        return epochDay(year, month, day) * 86400 + hour * 3600L + minute * 60L + second;
+    }
+
+    private static boolean hasSeconds(String text) {
+        return text.charAt(16) == ':';
+    }
+
+    /**
+     * @return the index after the minutes or seconds and the optional fraction or -1 if the text is too short
+     */
+    private static int fractionEnd(String text) {
+        if (text.length() < 17) {
+            return -1;
+        }
+        if (!hasSeconds(text)) {
+            return 16;
+        }
+        if (text.length() < 20) {
+            return -1;
+        }
+        var index = 19;
+        if (text.charAt(index) == '.') {
+            ++index;
+            while (index < text.length() && isDigit(text.charAt(index))) {
+                ++index;
+            }
+            if (index == 20 || index > 29) {
+                return -1;
+            }
+        }
+        return index;
+    }
+
+    private static int parseNanos(String text, int fractionEnd) {
+        var nanos = 0;
+        for (int i = 20; i < 29; ++i) {
+            nanos = nanos * 10 + (i < fractionEnd ? text.charAt(i) - '0' : 0);
+        }
+        return nanos;
+    }
+
+    private static int parseOffsetSeconds(String text, int index) {
+        if (index >= text.length()) {
+            return INVALID;
+        }
+        final var sign = text.charAt(index);
+        final var length = text.length() - index;
+        if (sign == 'Z') {
+            return length == 1 ? 0 : INVALID;
+        }
+        if (sign != '+' && sign != '-') {
+            return INVALID;
+        }
+        final int hours;
+        final int minutes;
+        if (length == 3) {
+            hours = digits(text, index + 1, 2);
+            minutes = 0;
+        } else if (length == 5) {
+            hours = digits(text, index + 1, 2);
+            minutes = digits(text, index + 3, 2);
+        } else if (length == 6 && text.charAt(index + 3) == ':') {
+            hours = digits(text, index + 1, 2);
+            minutes = digits(text, index + 4, 2);
+        } else {
+            return INVALID;
+        }
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+            return INVALID;
+        }
+        final var seconds = hours * 3600 + minutes * 60;
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    /**
+     * @return the value of the decimal digits or -1 if there is a non-digit
+     */
+    private static int digits(String text, int from, int count) {
+        var value = 0;
+        for (int i = from; i < from + count; ++i) {
+            final var c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Days from 1970-01-01 of a proleptic Gregorian date, counting from March so that the leap day is last.
+     */
+    public static long epochDay(long year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        final var era = Math.floorDiv(year, 400);
+        final var yearOfEra = year - era * 400;
+        final var dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final var dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.vesanieminen.froniusvisualizer.util;
 
+import com.vesanieminen.froniusvisualizer.services.model.VatTimeline;
 import org.openjdk.jol.info.GraphLayout;
 
 import java.io.UnsupportedEncodingException;
@@ -22,12 +23,8 @@ import java.util.Locale;
 import java.util.Objects;
 import java.util.OptionalDouble;
 
-import static com.vesanieminen.froniusvisualizer.views.NordpoolspotView.vat10Value;
-import static com.vesanieminen.froniusvisualizer.views.NordpoolspotView.vat24Value;
-
 public class Utils {
 
-    public static final NumberFormat numberFormat = NumberFormat.getInstance(Locale.FRANCE);
     public static final DecimalFormat decimalFormat = new DecimalFormat("#0.00");
 
     public static final ZoneId fiZoneID = ZoneId.of("Europe/Helsinki");
@@ -37,8 +34,6 @@ public class Utils {
     public static final Locale enLocale = new Locale("en", "GB");
     public static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
 
-    public static final Instant vat10Instant = Instant.from(ZonedDateTime.of(2022, 12, 1, 0, 0, 0, 0, fiZoneID));
-
     public static boolean notNull(Object... objects) {
         return Arrays.stream(objects).allMatch(Objects::nonNull);
     }
@@ -164,7 +159,7 @@ public class Utils {
     }
 
     public static double getVAT(Instant instant) {
-        return 0 <= instant.compareTo(vat10Instant) ? vat10Value : vat24Value;
+        return VatTimeline.FINLAND.multiplier(instant);
     }
 
     public static OptionalDouble average(List<Double> list) {
@@ -35,17 +35,13 @@ import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.theme.lumo.LumoUtility;
 import com.vesanieminen.froniusvisualizer.components.DoubleLabel;
-import com.vesanieminen.froniusvisualizer.services.FingridService;
-import com.vesanieminen.froniusvisualizer.services.NordpoolSpotService;
-import com.vesanieminen.froniusvisualizer.services.SpotHintaService;
+import com.vesanieminen.froniusvisualizer.services.MarketData;
 import com.vesanieminen.froniusvisualizer.services.model.FingridLiteResponse;
 import com.vesanieminen.froniusvisualizer.services.model.FingridRealtimeResponse;
 import com.vesanieminen.froniusvisualizer.services.model.NordpoolResponse;
 import com.vesanieminen.froniusvisualizer.services.model.SpotHintaResponse;
 import org.vaadin.addons.parttio.lightchart.LightChart;
 
-import java.io.IOException;
-import java.net.URISyntaxException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
@@ -56,19 +52,19 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
-import static com.vesanieminen.froniusvisualizer.services.FingridService.fingridDataUpdated;
 import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.calculateSpotAveragePriceThisMonth;
 import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.calculateSpotAveragePriceThisYear;
 import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.calculateSpotAveragePriceToday;
+import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.getSpotRollups;
 import static com.vesanieminen.froniusvisualizer.util.Utils.convertNordpoolLocalDateTimeToFinnish;
 import static com.vesanieminen.froniusvisualizer.util.Utils.format;
 import static com.vesanieminen.froniusvisualizer.util.Utils.getCurrentTimeWithHourPrecision;
 import static com.vesanieminen.froniusvisualizer.util.Utils.getNumberFormat;
-import static com.vesanieminen.froniusvisualizer.util.Utils.numberFormat;
+import static com.vesanieminen.froniusvisualizer.util.Utils.getVAT;
 import static com.vesanieminen.froniusvisualizer.util.Utils.utcZone;
-import static com.vesanieminen.froniusvisualizer.util.Utils.vat10Instant;
 import static com.vesanieminen.froniusvisualizer.views.MainLayout.URL_SUFFIX;
 
 @PageTitle("Chart" + URL_SUFFIX)
@@ -89,8 +85,6 @@ public class NordpoolspotView extends Main implements HasUrlParameter<String> {
     private final String totalRenewablesTitle;
 
     private static final String vatDisabled = "vat=off";
-    public static final Double vat24Value = 1.24d;
-    public static final Double vat10Value = 1.10d;
     private boolean hasVat = true;
 
     private boolean isFullscreen = false;
@@ -188,22 +182,15 @@ public class NordpoolspotView extends Main implements HasUrlParameter<String> {
 
     private Chart renderView() {
         isInitialRender = false;
-        NordpoolResponse nordpoolResponse;
-        FingridRealtimeResponse fingridResponse;
-        List<FingridLiteResponse> windEstimateResponses;
-        List<FingridLiteResponse> productionEstimateResponses;
-        List<FingridLiteResponse> consumptionEstimateResponses;
-        List<SpotHintaResponse> temperatureList;
-        try {
-            nordpoolResponse = NordpoolSpotService.getLatest7Days();
-            fingridResponse = FingridService.getLatest7Days();
-            windEstimateResponses = FingridService.getWindEstimate();
-            productionEstimateResponses = FingridService.getProductionEstimate();
-            consumptionEstimateResponses = FingridService.getConsumptionEstimate();
-            temperatureList = SpotHintaService.getLatest();
-        } catch (URISyntaxException | IOException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        // Read everything from one snapshot so that a refresh in between cannot mix old and new data
+        final var snapshot = MarketData.get();
+        final var nordpoolResponse = snapshot.nordpoolResponse();
+        final var fingridResponse = snapshot.fingridRealtime();
+        final var windEstimateResponses = snapshot.windEstimate();
+        final var productionEstimateResponses = snapshot.productionEstimate();
+        final var consumptionEstimateResponses = snapshot.consumptionEstimate();
+        final var temperatureList = snapshot.temperatures();
+        final var fingridDataUpdated = snapshot.fingridDataUpdated();
 
         removeAll();
         createMenuLayout();
@@ -513,11 +500,10 @@ public class NordpoolspotView extends Main implements HasUrlParameter<String> {
         final NumberFormat decimalFormat = getNumberFormat(getLocale(), 2);
         decimalFormat.setMinimumFractionDigits(2);
         var now = getCurrentTimeWithHourPrecision();
-        var highest = Double.MIN_VALUE;
-        var lowest = Double.MAX_VALUE;
         var total = 0d;
         var amount = 0;
         final var dataSeries = new DataSeries(fiElectricityPriceTitle);
+        final var numberFormat = NumberFormat.getInstance(Locale.FRANCE);
         final var rows = nordpoolResponse.data.Rows;
         int columnIndex = 6;
         while (columnIndex >= 0) {
@@ -533,11 +519,7 @@ public class NordpoolspotView extends Main implements HasUrlParameter<String> {
                 try {
                     var y = 0.0d;
                     if (hasVat) {
-                        if (0 <= instant.compareTo(vat10Instant)) {
-                            y = numberFormat.parse(column.Value).doubleValue() * vat10Value / 10;
-                        } else {
-                            y = numberFormat.parse(column.Value).doubleValue() * vat24Value / 10;
-                        }
+                        y = numberFormat.parse(column.Value).doubleValue() * getVAT(instant) / 10;
                     } else {
                         y = numberFormat.parse(column.Value).doubleValue() / 10;
                     }
@@ -550,14 +532,6 @@ public class NordpoolspotView extends Main implements HasUrlParameter<String> {
                     if (Objects.equals(localDateTime, now.plusHours(1))) {
                         nextPrice.setTitleBottom(decimalFormat.format(y));
                     }
-                    if (localDateTime.getDayOfMonth() == now.getDayOfMonth()) {
-                        if (y > highest) {
-                            highest = y;
-                        }
-                        if (y < lowest) {
-                            lowest = y;
-                        }
-                    }
                 } catch (ParseException e) {
                     // skip when the time is "-": changing from or to summer time.
                     continue;
@@ -566,7 +540,10 @@ public class NordpoolspotView extends Main implements HasUrlParameter<String> {
             }
             --columnIndex;
         }
-        lowestAndHighest.setTitleBottom(decimalFormat.format(lowest) + " / " + decimalFormat.format(highest));
+        final var today = getSpotRollups(hasVat).day(now.toLocalDate());
+        if (!today.isEmpty()) {
+            lowestAndHighest.setTitleBottom(decimalFormat.format(today.min()) + " / " + decimalFormat.format(today.max()));
+        }
         averagePrice7Days.setTitleBottom(decimalFormat.format(total / amount));
         series.add(0, dataSeries);
         chart.getConfiguration().setSeries(series);
@@ -1,6 +1,10 @@
 package com.vesanieminen.froniusvisualizer.views;
 
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.HasEnabled;
+import com.vaadin.flow.component.HasValue;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.Unit;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.charts.Chart;
@@ -17,6 +21,7 @@ import com.vaadin.flow.component.charts.model.XAxis;
 import com.vaadin.flow.component.charts.model.YAxis;
 import com.vaadin.flow.component.checkbox.CheckboxGroup;
 import com.vaadin.flow.component.checkbox.CheckboxGroupVariant;
+import com.vaadin.flow.component.combobox.ComboBox;
 import com.vaadin.flow.component.datepicker.DatePicker;
 import com.vaadin.flow.component.datetimepicker.DateTimePicker;
 import com.vaadin.flow.component.html.Anchor;
@@ -26,37 +31,45 @@ import com.vaadin.flow.component.html.Image;
 import com.vaadin.flow.component.html.Main;
 import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.progressbar.ProgressBar;
 import com.vaadin.flow.component.upload.Upload;
-import com.vaadin.flow.component.upload.receivers.FileBuffer;
-import com.vaadin.flow.component.upload.receivers.FileData;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.router.RouteAlias;
+import com.vaadin.flow.server.Command;
 import com.vaadin.flow.theme.lumo.LumoUtility;
 import com.vesanieminen.froniusvisualizer.components.DoubleLabel;
+import com.vesanieminen.froniusvisualizer.services.BreakEvenService;
+import com.vesanieminen.froniusvisualizer.services.CalculationExecutor;
+import com.vesanieminen.froniusvisualizer.services.ContractComparisonService;
 import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.FingridUsageData;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.SpotCalculation;
+import com.vesanieminen.froniusvisualizer.services.SpotCalculationCache;
+import com.vesanieminen.froniusvisualizer.services.UsageDataReceiver;
+import com.vesanieminen.froniusvisualizer.services.model.TransferTariff;
 import lombok.extern.slf4j.Slf4j;
 import org.vaadin.addons.parttio.lightchart.LightChart;
 import org.vaadin.miki.superfields.numbers.SuperDoubleField;
 
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.calculateFixedElectricityPrice;
-import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.calculateSpotElectricityPriceDetails;
-import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.getFingridUsageData;
-import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.spotDataEnd;
-import static com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.spotDataStart;
 import static com.vesanieminen.froniusvisualizer.util.Utils.fiLocale;
 import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
 import static com.vesanieminen.froniusvisualizer.util.Utils.format;
@@ -71,6 +84,8 @@ import static com.vesanieminen.froniusvisualizer.views.MainLayout.URL_SUFFIX;
 @Slf4j
 public class PriceCalculatorView extends Main {
 
+    // The uploads are parsed while they stream in, so the limit is not bound by memory
+    private static final int MAX_UPLOAD_BYTES = 50 * 1024 * 1024;
     private static int consumptionFilesUploaded = 0;
     private static int productionFilesUploaded = 0;
 
@@ -78,13 +93,20 @@ public class PriceCalculatorView extends Main {
     private final DateTimePicker toDateTimePicker;
     private final SuperDoubleField fixedPriceField;
     private final SuperDoubleField spotMarginField;
+    private final ComboBox<TransferType> transferTypeComboBox;
     private final SuperDoubleField transferAndTaxField;
+    private final SuperDoubleField transferAndTaxOtherField;
     private final SuperDoubleField spotProductionMarginField;
     private final List<HasEnabled> fields;
     private final Button button;
     private final CheckboxGroup<Calculations> calculationsCheckboxGroup;
-    private String lastConsumptionFile;
-    private String lastProductionFile;
+    private final ProgressBar progressBar = new ProgressBar();
+    private Future<?> runningCalculation;
+    // Incremented whenever the shown results would become stale, guarded by the session lock
+    private int calculationGeneration;
+    // Parsed uploads of this view, repeated calculations reuse them
+    private FingridUsageData consumptionData;
+    private FingridUsageData productionData;
 
     private LocalDateTime startConsumption;
     private LocalDateTime endConsumption;
@@ -118,7 +140,8 @@ public class PriceCalculatorView extends Main {
 
         final var timeRangeSpanCaption = new Span(getTranslation("calculator.spot.prices.available") + ":");
         timeRangeSpanCaption.addClassNames(LumoUtility.FontSize.SMALL, LumoUtility.TextColor.SECONDARY);
-        final var timeRangeSpan = new Span(format(spotDataStart, getLocale()) + " - " + format(spotDataEnd, getLocale()));
+        final var spotData = PriceCalculatorService.getSpotData();
+        final var timeRangeSpan = new Span(format(spotData.start(), getLocale()) + " - " + format(spotData.end(), getLocale()));
         timeRangeSpan.addClassNames(LumoUtility.FontSize.SMALL, LumoUtility.TextColor.SECONDARY);
         final var spotDataDiv = new Div(timeRangeSpanCaption, timeRangeSpan);
         spotDataDiv.addClassNames(LumoUtility.Display.FLEX, LumoUtility.FlexWrap.WRAP, LumoUtility.Gap.Column.XSMALL);
@@ -141,10 +164,10 @@ public class PriceCalculatorView extends Main {
         final var chartLayout = new Div();
 
         // Consumption file
-        FileBuffer consumptionFileBuffer = new FileBuffer();
-        final var uploadFingridConsumptionData = new Button(getTranslation("Consumption csv file upload (1MB max)"));
-        Upload consumptionUpload = new Upload(consumptionFileBuffer);
-        consumptionUpload.setMaxFileSize(1000000);
+        final var consumptionReceiver = new UsageDataReceiver();
+        final var uploadFingridConsumptionData = new Button(getTranslation("Consumption csv file upload (50MB max)"));
+        Upload consumptionUpload = new Upload(consumptionReceiver);
+        consumptionUpload.setMaxFileSize(MAX_UPLOAD_BYTES);
         consumptionUpload.setDropLabel(new Span(getTranslation("Drop Fingrid consumption file here")));
         consumptionUpload.setUploadButton(uploadFingridConsumptionData);
         consumptionUpload.setDropAllowed(true);
@@ -152,10 +175,10 @@ public class PriceCalculatorView extends Main {
         content.add(consumptionUpload);
 
         // Consumption file
-        FileBuffer productionFileBuffer = new FileBuffer();
-        final var uploadFingridproductionData = new Button(getTranslation("Production csv file upload (1MB max)"));
-        Upload productionUpload = new Upload(productionFileBuffer);
-        productionUpload.setMaxFileSize(1000000);
+        final var productionReceiver = new UsageDataReceiver();
+        final var uploadFingridproductionData = new Button(getTranslation("Production csv file upload (50MB max)"));
+        Upload productionUpload = new Upload(productionReceiver);
+        productionUpload.setMaxFileSize(MAX_UPLOAD_BYTES);
         productionUpload.setDropLabel(new Span(getTranslation("Drop Fingrid production file here")));
         productionUpload.setUploadButton(uploadFingridproductionData);
         productionUpload.setDropAllowed(true);
@@ -232,106 +255,170 @@ public class PriceCalculatorView extends Main {
         transferAndTaxField.setSuffixComponent(new Span(getTranslation("c/kWh")));
         transferAndTaxField.addClassNames(LumoUtility.Flex.GROW);
         transferAndTaxField.setVisible(false);
-        fieldRow.add(transferAndTaxField);
+
+        transferAndTaxOtherField = new SuperDoubleField(getTranslation(TransferType.DAY_NIGHT.getOtherName()));
+        transferAndTaxOtherField.setMaximumFractionDigits(6);
+        transferAndTaxOtherField.setLocale(getLocale());
+        transferAndTaxOtherField.setRequiredIndicatorVisible(true);
+        transferAndTaxOtherField.setSuffixComponent(new Span(getTranslation("c/kWh")));
+        transferAndTaxOtherField.addClassNames(LumoUtility.Flex.GROW);
+        transferAndTaxOtherField.setVisible(false);
+
+        transferTypeComboBox = new ComboBox<>(getTranslation("calculator.transfer.type"));
+        transferTypeComboBox.setItems(TransferType.values());
+        transferTypeComboBox.setItemLabelGenerator(item -> getTranslation(item.getName()));
+        transferTypeComboBox.setValue(TransferType.FLAT);
+        transferTypeComboBox.addClassNames(LumoUtility.Flex.GROW);
+        transferTypeComboBox.setVisible(false);
+        transferTypeComboBox.addValueChangeListener(e -> {
+            if (e.getValue() == null) {
+                transferTypeComboBox.setValue(TransferType.FLAT);
+                return;
+            }
+            transferAndTaxField.setLabel(getTranslation(e.getValue().getPriceName()));
+            if (e.getValue() != TransferType.FLAT) {
+                transferAndTaxOtherField.setLabel(getTranslation(e.getValue().getOtherName()));
+            }
+            transferAndTaxOtherField.setVisible(isCalculatingTransferAndTax() && e.getValue() != TransferType.FLAT);
+        });
+        fieldRow.add(transferTypeComboBox, transferAndTaxField, transferAndTaxOtherField);
 
         calculationsCheckboxGroup.addValueChangeListener(e -> {
             fixedPriceField.setVisible(e.getValue().contains(Calculations.FIXED));
             spotProductionMarginField.setVisible(e.getValue().contains(Calculations.SPOT_PRODUCTION));
+            transferTypeComboBox.setVisible(e.getValue().contains(Calculations.TRANSFER_AND_TAX));
             transferAndTaxField.setVisible(e.getValue().contains(Calculations.TRANSFER_AND_TAX));
+            transferAndTaxOtherField.setVisible(e.getValue().contains(Calculations.TRANSFER_AND_TAX) && transferTypeComboBox.getValue() != TransferType.FLAT);
             productionUpload.setVisible(e.getValue().contains(Calculations.SPOT_PRODUCTION));
             updateCalculateButtonState();
         });
-        fields = Arrays.asList(fromDateTimePicker, toDateTimePicker, fixedPriceField, spotMarginField, transferAndTaxField, spotProductionMarginField);
+        fields = Arrays.asList(fromDateTimePicker, toDateTimePicker, fixedPriceField, spotMarginField, transferTypeComboBox, transferAndTaxField, transferAndTaxOtherField, spotProductionMarginField);
 
         button = new Button(getTranslation("Calculate costs"), e -> {
-            try {
-                if (spotMarginField.getValue() == null) {
-                    spotMarginField.setValue(0d);
-                }
-                if (isCalculatingFixed()) {
-                    if (fixedPriceField.getValue() == null) {
-                        fixedPriceField.setValue(0d);
-                    }
-                }
-                if (isCalculatingTransferAndTax()) {
-                    if (transferAndTaxField.getValue() == null) {
-                        transferAndTaxField.setValue(0d);
-                    }
-                }
-                if (isCalculatingProduction()) {
-                    if (spotProductionMarginField.getValue() == null) {
-                        spotProductionMarginField.setValue(0d);
-                    }
+            if (spotMarginField.getValue() == null) {
+                spotMarginField.setValue(0d);
+            }
+            if (isCalculatingFixed()) {
+                if (fixedPriceField.getValue() == null) {
+                    fixedPriceField.setValue(0d);
                 }
-                final var consumptionData = getFingridUsageData(lastConsumptionFile);
-                final var spotCalculation = calculateSpotElectricityPriceDetails(consumptionData.data(), spotMarginField.getValue(), 1.24, fromDateTimePicker.getValue().atZone(fiZoneID).toInstant(), toDateTimePicker.getValue().atZone(fiZoneID).toInstant());
-                resultLayout.removeAll();
-                chartLayout.removeAll();
-
-                final var start = format(spotCalculation.start, getLocale());
-                final var end = format(spotCalculation.end, getLocale());
-
-                final NumberFormat sixDecimals = getNumberFormat(getLocale(), 6);
-                final var twoDecimalsWithPlusPrefix = getNumberFormatMaxTwoDecimalsWithPlusPrefix(getLocale());
-
-                // Total labels
-                resultLayout.add(new DoubleLabel(getTranslation("Calculation period (start times)"), start + " - " + end, true));
-                resultLayout.add(new DoubleLabel(getTranslation("Total consumption over period"), numberFormat.format(spotCalculation.totalConsumption) + "kWh", true));
-
-                // Spot labels
-                final var totalCost = new BigDecimal(spotCalculation.totalCost).setScale(2, RoundingMode.HALF_UP).doubleValue();
-                // Accurate:
-                final var weightedAverage = totalCost / spotCalculation.totalConsumption * 100;
-                // Helen calculates spot average like this:
-                //final var weightedAverage = totalCost / ((int) spotCalculation.totalAmount) * 100;
-                resultLayout.add(new DoubleLabel(getTranslation("Average spot price (incl. margin)"), sixDecimals.format(weightedAverage) + " " + getTranslation("c/kWh"), true));
-                resultLayout.add(new DoubleLabel(getTranslation("Total spot cost (incl. margin)"), numberFormat.format(spotCalculation.totalCost) + "€", true));
-                resultLayout.add(new DoubleLabel(getTranslation("Total spot cost (without margin)"), numberFormat.format(spotCalculation.totalCostWithoutMargin) + "€", true));
-                resultLayout.add(new DoubleLabel(getTranslation("Unweighted spot average"), numberFormat.format(spotCalculation.averagePriceWithoutMargin) + " " + getTranslation("c/kWh"), true));
-                final var loweredCost = (spotCalculation.totalCostWithoutMargin / spotCalculation.totalConsumption * 100 - spotCalculation.averagePriceWithoutMargin) / spotCalculation.averagePriceWithoutMargin * 100;
-                final var formattedOwnSpotVsAverage = twoDecimalsWithPlusPrefix.format(loweredCost);
-                resultLayout.add(new DoubleLabel(getTranslation("calculator.spot.difference.percentage"), formattedOwnSpotVsAverage + "%", true));
-                final var costEffect = (spotCalculation.totalCostWithoutMargin * 100 - spotCalculation.averagePriceWithoutMargin * spotCalculation.totalConsumption) / spotCalculation.totalConsumption;
-                final var costEffectFormatted = twoDecimalsWithPlusPrefix.format(costEffect);
-                resultLayout.add(new DoubleLabel(getTranslation("calculator.spot.difference.cents"), costEffectFormatted + " " + getTranslation("c/kWh"), true));
-
-                if (isCalculatingFixed()) {
-                    resultLayout.add(new DoubleLabel(getTranslation("Fixed price"), fixedPriceField.getValue() + " " + getTranslation("c/kWh"), true));
-                    var fixedCost = calculateFixedElectricityPrice(consumptionData.data(), fixedPriceField.getValue(), fromDateTimePicker.getValue().atZone(fiZoneID).toInstant(), toDateTimePicker.getValue().atZone(fiZoneID).toInstant());
-                    resultLayout.add(new DoubleLabel(getTranslation("Fixed cost total"), numberFormat.format(fixedCost) + "€", true));
+            }
+            if (isCalculatingTransferAndTax()) {
+                if (transferAndTaxField.getValue() == null) {
+                    transferAndTaxField.setValue(0d);
                 }
-
-                if (isCalculatingTransferAndTax()) {
-                    resultLayout.add(new DoubleLabel(getTranslation("calculator.transfer.and.tax"), transferAndTaxField.getValue() + " " + getTranslation("c/kWh"), true));
-                    var transferAndTaxTotalCost = calculateFixedElectricityPrice(consumptionData.data(), transferAndTaxField.getValue(), fromDateTimePicker.getValue().atZone(fiZoneID).toInstant(), toDateTimePicker.getValue().atZone(fiZoneID).toInstant());
-                    resultLayout.add(new DoubleLabel(getTranslation("calculator.transfer.and.tax.total"), numberFormat.format(transferAndTaxTotalCost) + "€", true));
-                    resultLayout.add(new DoubleLabel(getTranslation("calculator.spot.cost.and.transfer"), numberFormat.format(spotCalculation.totalCost + transferAndTaxTotalCost) + "€", true));
+                if (transferAndTaxOtherField.getValue() == null) {
+                    transferAndTaxOtherField.setValue(0d);
                 }
-
-                // Create spot consumption chart
-                chartLayout.add(createChart(spotCalculation, isCalculatingFixed(), getTranslation("Consumption / cost per hour"), getTranslation("Consumption"), getTranslation("Spot cost")));
-
-                if (isCalculatingProduction()) {
-                    final var productionData = getFingridUsageData(lastProductionFile);
-                    final var spotProductionCalculation = calculateSpotElectricityPriceDetails(productionData.data(), -spotProductionMarginField.getValue(), 1, fromDateTimePicker.getValue().atZone(fiZoneID).toInstant(), toDateTimePicker.getValue().atZone(fiZoneID).toInstant());
-                    resultLayout.add(new DoubleLabel(getTranslation("Total production over period"), numberFormat.format(spotProductionCalculation.totalConsumption) + "kWh", true));
-                    resultLayout.add(new DoubleLabel(getTranslation("Net spot cost (consumption - production)"), numberFormat.format(spotCalculation.totalCost - spotProductionCalculation.totalCost) + "€", true));
-                    resultLayout.add(new DoubleLabel(getTranslation("Net usage (consumption - production)"), numberFormat.format(spotCalculation.totalConsumption - spotProductionCalculation.totalConsumption) + "kWh", true));
-                    resultLayout.add(new DoubleLabel(getTranslation("Average production price (incl. margin)"), numberFormat.format(spotProductionCalculation.totalCost / spotProductionCalculation.totalConsumption * 100) + getTranslation("c/kWh"), true));
-                    resultLayout.add(new DoubleLabel(getTranslation("Total production value (incl. margin)"), numberFormat.format(spotProductionCalculation.totalCost) + "€", true));
-                    resultLayout.add(new DoubleLabel(getTranslation("Total production value (without margin)"), numberFormat.format(spotProductionCalculation.totalCostWithoutMargin) + "€", true));
-                    // Create spot production chart
-                    chartLayout.add(createChart(spotProductionCalculation, false, getTranslation("Production / value per hour"), "Production", "Production value"));
+            }
+            if (isCalculatingProduction()) {
+                if (spotProductionMarginField.getValue() == null) {
+                    spotProductionMarginField.setValue(0d);
                 }
-
-            } catch (IOException | ParseException ex) {
-                throw new RuntimeException(ex);
+            }
+            cancelCalculation();
+            // The fields are read here, the calculation runs on a worker and only the results are shown under the session lock
+            final var calculation = new Calculation(
+                    consumptionData,
+                    isCalculatingProduction() ? productionData : null,
+                    fromDateTimePicker.getValue().atZone(fiZoneID).toInstant(),
+                    toDateTimePicker.getValue().atZone(fiZoneID).toInstant(),
+                    spotMarginField.getValue(),
+                    isCalculatingTransferAndTax() ? transferTypeComboBox.getValue().toTariff(transferAndTaxField.getValue(), transferAndTaxOtherField.getValue()) : TransferTariff.NONE,
+                    isCalculatingFixed() ? fixedPriceField.getValue() : null,
+                    isCalculatingProduction() ? spotProductionMarginField.getValue() : 0
+            );
+            final var ui = UI.getCurrent();
+            final var generation = calculationGeneration;
+            try {
+                runningCalculation = CalculationExecutor.submit(() -> {
+                    final CalculationResult result;
+                    try {
+                        result = calculation.calculate();
+                    } catch (CancellationException ex) {
+                        // A newer calculation or leaving the view cancelled this one
+                        return;
+                    } catch (RuntimeException ex) {
+                        log.error("calculation failed", ex);
+                        access(ui, generation, () -> Notification.show(getTranslation("calculator.failed")));
+                        return;
+                    }
+                    access(ui, generation, () -> {
+                        final var spotCalculation = result.consumption();
+                        resultLayout.removeAll();
+                        chartLayout.removeAll();
+
+                        final var start = format(spotCalculation.start, getLocale());
+                        final var end = format(spotCalculation.end, getLocale());
+
+                        final NumberFormat sixDecimals = getNumberFormat(getLocale(), 6);
+                        final var twoDecimalsWithPlusPrefix = getNumberFormatMaxTwoDecimalsWithPlusPrefix(getLocale());
+
+                        // Total labels
+                        resultLayout.add(new DoubleLabel(getTranslation("Calculation period (start times)"), start + " - " + end, true));
+                        resultLayout.add(new DoubleLabel(getTranslation("Total consumption over period"), numberFormat.format(spotCalculation.totalConsumption) + "kWh", true));
+
+                        // Spot labels
+                        final var totalCost = new BigDecimal(spotCalculation.totalCost).setScale(2, RoundingMode.HALF_UP).doubleValue();
+                        // Accurate:
+                        final var weightedAverage = totalCost / spotCalculation.totalConsumption * 100;
+                        // Helen calculates spot average like this:
+                        //final var weightedAverage = totalCost / ((int) spotCalculation.totalAmount) * 100;
+                        resultLayout.add(new DoubleLabel(getTranslation("Average spot price (incl. margin)"), sixDecimals.format(weightedAverage) + " " + getTranslation("c/kWh"), true));
+                        resultLayout.add(new DoubleLabel(getTranslation("Total spot cost (incl. margin)"), numberFormat.format(spotCalculation.totalCost) + "€", true));
+                        resultLayout.add(new DoubleLabel(getTranslation("Total spot cost (without margin)"), numberFormat.format(spotCalculation.totalCostWithoutMargin) + "€", true));
+                        resultLayout.add(new DoubleLabel(getTranslation("Unweighted spot average"), numberFormat.format(spotCalculation.averagePriceWithoutMargin) + " " + getTranslation("c/kWh"), true));
+                        final var loweredCost = (spotCalculation.totalCostWithoutMargin / spotCalculation.totalConsumption * 100 - spotCalculation.averagePriceWithoutMargin) / spotCalculation.averagePriceWithoutMargin * 100;
+                        final var formattedOwnSpotVsAverage = twoDecimalsWithPlusPrefix.format(loweredCost);
+                        resultLayout.add(new DoubleLabel(getTranslation("calculator.spot.difference.percentage"), formattedOwnSpotVsAverage + "%", true));
+                        final var costEffect = (spotCalculation.totalCostWithoutMargin * 100 - spotCalculation.averagePriceWithoutMargin * spotCalculation.totalConsumption) / spotCalculation.totalConsumption;
+                        final var costEffectFormatted = twoDecimalsWithPlusPrefix.format(costEffect);
+                        resultLayout.add(new DoubleLabel(getTranslation("calculator.spot.difference.cents"), costEffectFormatted + " " + getTranslation("c/kWh"), true));
+
+                        if (isCalculatingFixed()) {
+                            resultLayout.add(new DoubleLabel(getTranslation("Fixed price"), fixedPriceField.getValue() + " " + getTranslation("c/kWh"), true));
+                            resultLayout.add(new DoubleLabel(getTranslation("Fixed cost total"), numberFormat.format(result.fixedCost()) + "€", true));
+                            if (result.breakEvenMargin() != null) {
+                                resultLayout.add(new DoubleLabel(getTranslation("calculator.break.even.basis"), numberFormat.format(result.breakEvenFixedCost()) + "€", true));
+                                resultLayout.add(new DoubleLabel(getTranslation("calculator.break.even.margin"), twoDecimalsWithPlusPrefix.format(result.breakEvenMargin()) + " " + getTranslation("c/kWh"), true));
+                            }
+                        }
+
+                        if (isCalculatingTransferAndTax()) {
+                            resultLayout.add(new DoubleLabel(getTranslation(transferTypeComboBox.getValue().getPriceName()), transferAndTaxField.getValue() + " " + getTranslation("c/kWh"), true));
+                            if (transferTypeComboBox.getValue() != TransferType.FLAT) {
+                                resultLayout.add(new DoubleLabel(getTranslation(transferTypeComboBox.getValue().getOtherName()), transferAndTaxOtherField.getValue() + " " + getTranslation("c/kWh"), true));
+                            }
+                            final var transferAndTaxTotalCost = spotCalculation.transferCost;
+                            resultLayout.add(new DoubleLabel(getTranslation("calculator.transfer.and.tax.total"), numberFormat.format(transferAndTaxTotalCost) + "€", true));
+                            resultLayout.add(new DoubleLabel(getTranslation("calculator.spot.cost.and.transfer"), numberFormat.format(spotCalculation.totalCost + transferAndTaxTotalCost) + "€", true));
+                        }
+
+                        // Create spot consumption chart
+                        chartLayout.add(createChart(spotCalculation, isCalculatingFixed(), getTranslation("Consumption / cost per hour"), getTranslation("Consumption"), getTranslation("Spot cost")));
+
+                        if (isCalculatingProduction()) {
+                            final var spotProductionCalculation = result.production();
+                            resultLayout.add(new DoubleLabel(getTranslation("Total production over period"), numberFormat.format(spotProductionCalculation.totalConsumption) + "kWh", true));
+                            resultLayout.add(new DoubleLabel(getTranslation("Net spot cost (consumption - production)"), numberFormat.format(spotCalculation.totalCost - spotProductionCalculation.totalCost) + "€", true));
+                            resultLayout.add(new DoubleLabel(getTranslation("Net usage (consumption - production)"), numberFormat.format(spotCalculation.totalConsumption - spotProductionCalculation.totalConsumption) + "kWh", true));
+                            resultLayout.add(new DoubleLabel(getTranslation("Average production price (incl. margin)"), numberFormat.format(spotProductionCalculation.totalCost / spotProductionCalculation.totalConsumption * 100) + getTranslation("c/kWh"), true));
+                            resultLayout.add(new DoubleLabel(getTranslation("Total production value (incl. margin)"), numberFormat.format(spotProductionCalculation.totalCost) + "€", true));
+                            resultLayout.add(new DoubleLabel(getTranslation("Total production value (without margin)"), numberFormat.format(spotProductionCalculation.totalCostWithoutMargin) + "€", true));
+                            // Create spot production chart
+                            chartLayout.add(createChart(spotProductionCalculation, false, getTranslation("Production / value per hour"), "Production", "Production value"));
+                        }
+                    });
+                });
+                progressBar.setVisible(true);
+            } catch (RejectedExecutionException ex) {
+                Notification.show(getTranslation("calculator.busy"));
             }
         });
         button.addClassNames(LumoUtility.Margin.Top.MEDIUM);
 
-        addConsumptionSucceededListener(consumptionFileBuffer, consumptionUpload);
-        addProductionSucceededListener(productionFileBuffer, productionUpload);
+        addConsumptionSucceededListener(consumptionReceiver, consumptionUpload);
+        addProductionSucceededListener(productionReceiver, productionUpload);
         addErrorHandling(consumptionUpload);
         addErrorHandling(productionUpload);
 
@@ -339,13 +426,52 @@ public class PriceCalculatorView extends Main {
         spotMarginField.addValueChangeListener(e -> updateCalculateButtonState());
         fromDateTimePicker.addValueChangeListener(e -> updateCalculateButtonState());
         toDateTimePicker.addValueChangeListener(e -> updateCalculateButtonState());
+        // A calculation with stale parameters or data is not shown
+        Stream.<HasValue<?, ?>>of(calculationsCheckboxGroup, fromDateTimePicker, toDateTimePicker, fixedPriceField, spotMarginField, transferTypeComboBox, transferAndTaxField, transferAndTaxOtherField, spotProductionMarginField)
+                .forEach(field -> field.addValueChangeListener(e -> cancelCalculation()));
         setFieldsEnabled(false);
         button.setEnabled(false);
         content.add(button);
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        content.add(progressBar);
         add(resultLayout);
         add(chartLayout);
     }
 
+    /**
+     * Runs the command on the UI if no newer calculation has been started or cancelled since the given generation.
+     */
+    private void access(UI ui, int generation, Command command) {
+        try {
+            ui.access(() -> {
+                if (generation == calculationGeneration) {
+                    runningCalculation = null;
+                    progressBar.setVisible(false);
+                    command.execute();
+                }
+            });
+        } catch (UIDetachedException e) {
+            // The user left, nothing to show
+        }
+    }
+
+    private void cancelCalculation() {
+        ++calculationGeneration;
+        if (runningCalculation != null) {
+            runningCalculation.cancel(true);
+            runningCalculation = null;
+            CalculationExecutor.purge();
+        }
+        progressBar.setVisible(false);
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        super.onDetach(detachEvent);
+        cancelCalculation();
+    }
+
     private void addErrorHandling(Upload upload) {
         upload.addFileRejectedListener(e -> {
             Notification.show(getTranslation("File was rejected") + ": " + e.getErrorMessage());
@@ -367,13 +493,13 @@ public class PriceCalculatorView extends Main {
         return calculationsCheckboxGroup.getValue().contains(Calculations.SPOT_PRODUCTION);
     }
 
-    private void addConsumptionSucceededListener(FileBuffer fileBuffer, Upload consumptionUpload) {
+    private void addConsumptionSucceededListener(UsageDataReceiver receiver, Upload consumptionUpload) {
         consumptionUpload.addSucceededListener(event -> {
-            FileData savedFileData = fileBuffer.getFileData();
-            lastConsumptionFile = savedFileData.getFile().getAbsolutePath();
             log.info("Consumption files uploaded: " + ++consumptionFilesUploaded);
             try {
-                final var consumptionData = getFingridUsageData(lastConsumptionFile);
+                consumptionData = receiver.getUsageData();
+                cancelCalculation();
+                updatePickerStep();
                 final var consumptionDataStart = consumptionData.start().atZone(fiZoneID).toLocalDateTime();
                 final var consumptionDataEnd = consumptionData.end().atZone(fiZoneID).toLocalDateTime();
                 final var isStartProductionAfter = startProduction != null && startProduction.isAfter(consumptionDataStart);
@@ -389,20 +515,20 @@ public class PriceCalculatorView extends Main {
 
                 updateCalculateButtonState();
                 setFieldsEnabled(true);
-            } catch (IOException | ParseException e) {
+            } catch (ParseException e) {
                 throw new RuntimeException(e);
             }
         });
-        consumptionUpload.addFailedListener(e -> setEnabled(false, fixedPriceField, spotMarginField, transferAndTaxField, spotProductionMarginField, fromDateTimePicker, toDateTimePicker, button));
+        consumptionUpload.addFailedListener(e -> setEnabled(false, fixedPriceField, spotMarginField, transferTypeComboBox, transferAndTaxField, transferAndTaxOtherField, spotProductionMarginField, fromDateTimePicker, toDateTimePicker, button));
     }
 
-    private void addProductionSucceededListener(FileBuffer fileBuffer, Upload productionUpload) {
+    private void addProductionSucceededListener(UsageDataReceiver receiver, Upload productionUpload) {
         productionUpload.addSucceededListener(event -> {
-            FileData savedFileData = fileBuffer.getFileData();
-            lastProductionFile = savedFileData.getFile().getAbsolutePath();
             log.info("Production files uploaded: " + ++productionFilesUploaded);
             try {
-                final var productionData = getFingridUsageData(lastProductionFile);
+                productionData = receiver.getUsageData();
+                cancelCalculation();
+                updatePickerStep();
                 final var productionDataStart = productionData.start().atZone(fiZoneID).toLocalDateTime();
                 final var productionDataEnd = productionData.end().atZone(fiZoneID).toLocalDateTime();
                 final var isStartConsumptionAfter = startConsumption != null && startConsumption.isAfter(productionDataStart);
@@ -417,11 +543,18 @@ public class PriceCalculatorView extends Main {
                 endProduction = productionDataEnd;
                 updateCalculateButtonState();
                 setFieldsEnabled(true);
-            } catch (IOException | ParseException e) {
+            } catch (ParseException e) {
                 throw new RuntimeException(e);
             }
         });
-        productionUpload.addFailedListener(e -> setEnabled(false, fixedPriceField, spotMarginField, transferAndTaxField, spotProductionMarginField, fromDateTimePicker, toDateTimePicker, button));
+        productionUpload.addFailedListener(e -> setEnabled(false, fixedPriceField, spotMarginField, transferTypeComboBox, transferAndTaxField, transferAndTaxOtherField, spotProductionMarginField, fromDateTimePicker, toDateTimePicker, button));
+    }
+
+    // 15 minute data can be calculated from and to any quarter
+    private void updatePickerStep() {
+        final var step = Stream.of(consumptionData, productionData).filter(Objects::nonNull).map(FingridUsageData::resolution).min(Duration::compareTo).orElse(Duration.ofHours(1));
+        fromDateTimePicker.setStep(step);
+        toDateTimePicker.setStep(step);
     }
 
     private Chart createChart(PriceCalculatorService.SpotCalculation spotCalculation, boolean isCalculatingFixed, String title, String yAxisTitle, String spotTitle) {
@@ -627,8 +760,8 @@ public class PriceCalculatorView extends Main {
 
     private void updateCalculateButtonState() {
         final var isDateValid = fromDateTimePicker.getValue() != null && toDateTimePicker.getValue() != null && fromDateTimePicker.getValue().isBefore(toDateTimePicker.getValue()) && !fromDateTimePicker.isInvalid() && !toDateTimePicker.isInvalid();
-        final var isCalculatingProductionValid = (isCalculatingProduction() && lastProductionFile != null) || !isCalculatingProduction();
-        button.setEnabled(lastConsumptionFile != null && isCalculatingProductionValid && isDateValid);
+        final var isCalculatingProductionValid = (isCalculatingProduction() && productionData != null) || !isCalculatingProduction();
+        button.setEnabled(consumptionData != null && isCalculatingProductionValid && isDateValid);
     }
 
     enum Calculations {
@@ -648,4 +781,90 @@ public class PriceCalculatorView extends Main {
         }
     }
 
+    /**
+     * The parameters of a calculation read from the fields.
+     *
+     * @param production null if the production is not calculated
+     * @param fixedPrice null if the fixed price is not calculated
+     */
+    private record Calculation(FingridUsageData consumption, FingridUsageData production, Instant start, Instant end, double margin, TransferTariff transfer, Double fixedPrice, double productionMargin) {
+
+        /**
+         * @throws CancellationException if the calculation is cancelled, checked between the stages and within the
+         *                               passes over the consumption
+         */
+        CalculationResult calculate() {
+            // The transfer is priced for every consumption hour, also the ones without a spot price
+            final var spotCalculation = SpotCalculationCache.calculateSpotElectricityPriceDetails(consumption.series(), margin, 1.24, transfer, start, end);
+            checkCancelled();
+            var fixedCost = 0d;
+            Double breakEvenFixedCost = null;
+            Double breakEvenMargin = null;
+            if (fixedPrice != null) {
+                fixedCost = calculateFixedElectricityPrice(consumption.series(), fixedPrice, start, end);
+                // The break-even margin only covers the hours with a spot price, its fixed cost is shown separately
+                final var series = consumption.series();
+                final var aggregates = ContractComparisonService.aggregate(series, series.lowerBound(start), series.upperBound(end));
+                if (aggregates.consumption() > 0) {
+                    breakEvenFixedCost = fixedPrice * aggregates.consumption() / 100;
+                    breakEvenMargin = BreakEvenService.breakEvenMargin(aggregates, fixedPrice);
+                }
+                checkCancelled();
+            }
+            final var productionCalculation = production != null ? SpotCalculationCache.calculateSpotElectricityPriceDetails(production.series(), -productionMargin, 1, TransferTariff.NONE, start, end) : null;
+            return new CalculationResult(spotCalculation, fixedCost, breakEvenFixedCost, breakEvenMargin, productionCalculation);
+        }
+
+        private static void checkCancelled() {
+            if (Thread.interrupted()) {
+                throw new CancellationException();
+            }
+        }
+    }
+
+    /**
+     * @param fixedCost          the fixed price of all the consumption in the range
+     * @param breakEvenFixedCost the fixed price of the consumption with a spot price, which the break-even margin is
+     *                           based on, null like the break-even margin
+     * @param breakEvenMargin    null if the fixed price is not calculated or there is no consumption with a spot price
+     */
+    private record CalculationResult(SpotCalculation consumption, double fixedCost, Double breakEvenFixedCost, Double breakEvenMargin, SpotCalculation production) {
+    }
+
+    enum TransferType {
+        FLAT("calculator.transfer.flat", "calculator.transfer.and.tax", null),
+        DAY_NIGHT("calculator.transfer.day.night", "calculator.transfer.day", "calculator.transfer.night"),
+        SEASONAL("calculator.transfer.seasonal", "calculator.transfer.winter.weekday", "calculator.transfer.other.time");
+
+        private final String name;
+        private final String priceName;
+        private final String otherName;
+
+        TransferType(String name, String priceName, String otherName) {
+            this.name = name;
+            this.priceName = priceName;
+            this.otherName = otherName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPriceName() {
+            return priceName;
+        }
+
+        public String getOtherName() {
+            return otherName;
+        }
+
+        public TransferTariff toTariff(double price, double otherPrice) {
+            return switch (this) {
+                case FLAT -> TransferTariff.flat(price);
+                case DAY_NIGHT -> TransferTariff.dayNight(price, otherPrice);
+                case SEASONAL -> TransferTariff.seasonal(price, otherPrice);
+            };
+        }
+    }
+
 }
@@ -0,0 +1,78 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.BreakEvenService;
+import com.vesanieminen.froniusvisualizer.services.ContractComparisonService;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.Contract;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import com.vesanieminen.froniusvisualizer.services.model.UsageAggregates;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class BreakEvenServiceTest {
+
+    private static ConsumptionSeries consumption;
+    private static UsageAggregates aggregates;
+
+    @BeforeClass
+    public static void setUp() throws IOException, ParseException {
+        PriceCalculatorService.updateSpotData(SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices));
+        consumption = PriceCalculatorService.getFingridUsageData("src/main/resources/data/fingrid/consumption.csv").series();
+        aggregates = ContractComparisonService.aggregate(consumption, 0, consumption.size());
+    }
+
+    @Test
+    public void testBreakEvenMarginMatchesTheCalculator() {
+        final var fixedPrice = 12.68;
+        final var margin = BreakEvenService.breakEvenMargin(aggregates, fixedPrice);
+        final var spotCalculation = PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0, consumption.size(), margin, 1.24);
+        assertEquals(PriceCalculatorService.calculateFixedElectricityPrice(consumption, 0, consumption.size(), fixedPrice), spotCalculation.totalCost, 1e-6);
+        assertEquals(fixedPrice, BreakEvenService.breakEvenFixedPrice(aggregates, margin), 1e-9);
+    }
+
+    @Test
+    public void testMonthlyFees() {
+        final var fixed = new Contract.Fixed("fixed", 12.68, 3.5);
+        final var margin = BreakEvenService.breakEvenMargin(aggregates, fixed, 4.9);
+        final var spot = new Contract.Spot("spot", margin, 4.9);
+        final var costs = ContractComparisonService.compare(aggregates, List.of(fixed, spot)).costs();
+        assertEquals(costs.get(0).totalCost(), costs.get(1).totalCost(), 1e-6);
+        assertEquals(fixed.price(), BreakEvenService.breakEvenFixedPrice(aggregates, spot, fixed.monthlyFee()), 1e-9);
+    }
+
+    @Test
+    public void testNoConsumption() {
+        final var empty = ContractComparisonService.aggregate(consumption, 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> BreakEvenService.breakEvenMargin(empty, 12.68));
+        assertThrows(IllegalArgumentException.class, () -> BreakEvenService.breakEvenFixedPrice(empty, 0.5));
+    }
+
+    @Test
+    public void testCostCurve() {
+        final var curve = BreakEvenService.costCurve(aggregates, -1, 1, 21, 2);
+        assertEquals(21, curve.size());
+        assertEquals(1, curve.margin(20), 1e-12);
+        for (int i = 0; i < curve.size(); ++i) {
+            final var cost = ContractComparisonService.compare(aggregates, List.of(new Contract.Spot("spot", curve.margin(i), 2))).costs().get(0).totalCost();
+            assertEquals(cost, curve.cost(i), 1e-6);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCurveNeedsTwoPoints() {
+        BreakEvenService.costCurve(aggregates, 0, 1, 1, 0);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.CalculationExecutor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class CalculationExecutorTest {
+
+    @Test
+    public void testQueueIsBoundedAndCancelledCalculationsArePurged() throws Exception {
+        final var release = new CountDownLatch(1);
+        final var started = new CountDownLatch(CalculationExecutor.THREADS);
+        final var running = new ArrayList<Future<?>>();
+        for (int i = 0; i < CalculationExecutor.THREADS; ++i) {
+            running.add(CalculationExecutor.submit(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        final var queued = new ArrayList<Future<?>>();
+        for (int i = 0; i < CalculationExecutor.QUEUE_CAPACITY; ++i) {
+            queued.add(CalculationExecutor.submit(() -> {
+            }));
+        }
+        final var rejected = CalculationExecutor.getStats().rejected();
+        assertThrows(RejectedExecutionException.class, () -> CalculationExecutor.submit(() -> {
+        }));
+
+        final var stats = CalculationExecutor.getStats();
+        assertEquals(CalculationExecutor.QUEUE_CAPACITY, stats.queueDepth());
+        assertEquals(CalculationExecutor.QUEUE_CAPACITY, stats.maxQueueDepth());
+        assertEquals(CalculationExecutor.THREADS, stats.active());
+        assertEquals(rejected + 1, stats.rejected());
+
+        queued.forEach(future -> future.cancel(true));
+        CalculationExecutor.purge();
+        assertEquals(0, CalculationExecutor.getStats().queueDepth());
+        release.countDown();
+        for (Future<?> future : running) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.model.CalendarIndex;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.stream.IntStream;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CalendarIndexTest {
+
+    @Test
+    public void testIndexMatchesZonedDateTimes() throws IOException {
+        final var series = SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices);
+        final var calendar = CalendarIndex.of(series);
+        assertEquals(series.size(), calendar.size());
+        for (int i = 0; i < series.size(); ++i) {
+            final var dateTime = series.instant(i).atZone(fiZoneID);
+            assertEquals(dateTime.getYear(), calendar.year(i));
+            assertEquals(dateTime.getMonthValue(), calendar.month(i));
+            assertEquals(dateTime.getDayOfMonth(), calendar.day(i));
+            assertEquals(dateTime.getHour(), calendar.hour(i));
+        }
+
+        for (var date = LocalDate.of(2020, 12, 30); date.isBefore(LocalDate.of(2022, 11, 8)); date = date.plusDays(1)) {
+            final var day = date;
+            final var expected = IntStream.range(0, series.size()).filter(i -> series.instant(i).atZone(fiZoneID).toLocalDate().equals(day)).toArray();
+            assertArrayEquals(date.toString(), expected, calendar.day(date).stream().toArray());
+        }
+        // Switches to and from summer time
+        assertEquals(23, calendar.day(LocalDate.of(2022, 3, 27)).size());
+        assertEquals(25, calendar.day(LocalDate.of(2022, 10, 30)).size());
+        assertEquals(31 * 24 - 1, calendar.month(YearMonth.of(2022, 3)).size());
+        assertEquals(365 * 24, calendar.year(Year.of(2021)).size());
+        assertTrue(calendar.month(YearMonth.of(2030, 1)).isEmpty());
+        assertTrue(calendar.year(Year.of(2019)).isEmpty());
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.model.CalendarRollups;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CalendarRollupsTest {
+
+    private static SpotPriceSeries readSeries() throws IOException {
+        return SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices);
+    }
+
+    @Test
+    public void testRollupsMatchHourlyData() throws IOException {
+        final var series = readSeries();
+        final var rollups = CalendarRollups.of(series, series::price);
+        final var date = LocalDate.of(2022, 8, 15);
+        final var dayPrices = IntStream.range(0, series.size()).filter(i -> series.instant(i).atZone(fiZoneID).toLocalDate().equals(date)).mapToDouble(series::price).toArray();
+        final var day = rollups.day(date);
+        assertEquals(24, day.count());
+        assertEquals(Arrays.stream(dayPrices).min().getAsDouble(), day.min(), 0);
+        assertEquals(Arrays.stream(dayPrices).max().getAsDouble(), day.max(), 0);
+        assertEquals(Arrays.stream(dayPrices).average().getAsDouble(), day.average(), 1e-9);
+
+        final var yearPrices = IntStream.range(0, series.size()).filter(i -> series.instant(i).atZone(fiZoneID).getYear() == 2021).mapToDouble(series::price).toArray();
+        assertEquals(yearPrices.length, rollups.year(Year.of(2021)).count());
+        assertEquals(Arrays.stream(yearPrices).average().getAsDouble(), rollups.year(Year.of(2021)).average(), 1e-9);
+        assertEquals(31 * 24 - 1, rollups.month(YearMonth.of(2022, 3)).count());
+        assertTrue(rollups.day(LocalDate.of(2030, 1, 1)).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalUpdateMatchesFullRebuild() throws IOException {
+        final var series = readSeries();
+        final var hours = IntStream.range(0, series.size()).mapToLong(series::epochHour).toArray();
+        final var prices = IntStream.range(0, series.size()).mapToDouble(series::price).toArray();
+        // Drop the last two days and change one price in the middle
+        final var previous = SpotPriceSeries.of(Arrays.copyOf(hours, hours.length - 48), Arrays.copyOf(prices, prices.length - 48));
+        prices[1000] += 5;
+        final var next = SpotPriceSeries.of(hours, prices);
+
+        final var changedDays = CalendarRollups.changedDays(previous, next);
+        assertTrue(changedDays.size() >= 3 && changedDays.size() <= 4);
+        final var incremental = CalendarRollups.of(previous, previous::price).update(next, next::price, changedDays);
+        final var full = CalendarRollups.of(next, next::price);
+        for (LocalDate date = LocalDate.of(2020, 12, 31); !date.isAfter(LocalDate.of(2022, 11, 5)); date = date.plusDays(1)) {
+            assertEquals(date.toString(), full.day(date), incremental.day(date));
+            assertEquals(date.toString(), full.month(YearMonth.from(date)), incremental.month(YearMonth.from(date)));
+        }
+        assertEquals(full.year(Year.of(2022)), incremental.year(Year.of(2022)));
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.ContractComparisonService;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.Contract;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.List;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static org.junit.Assert.assertEquals;
+
+public class ContractComparisonServiceTest {
+
+    private static ConsumptionSeries consumption;
+
+    @BeforeClass
+    public static void setUp() throws IOException, ParseException {
+        PriceCalculatorService.updateSpotData(SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices));
+        consumption = PriceCalculatorService.getFingridUsageData("src/main/resources/data/fingrid/consumption.csv").series();
+    }
+
+    @Test
+    public void testContractsMatchTheCalculator() {
+        final var spot = new Contract.Spot("spot", 0.5, 0);
+        final var fixed = new Contract.Fixed("fixed", 12.68, 0);
+        final var flatTimeOfUse = new Contract.TimeOfUse("flat", 12.68, 12.68, 0);
+
+        final var comparison = ContractComparisonService.compare(ContractComparisonService.aggregate(consumption, 0, consumption.size()), List.of(spot, fixed, flatTimeOfUse));
+
+        final var spotCalculation = PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0, consumption.size(), 0.5, 1.24);
+        final var fixedCost = PriceCalculatorService.calculateFixedElectricityPrice(consumption, 0, consumption.size(), 12.68);
+        assertEquals(spotCalculation.totalCost, cost(comparison, spot), 1e-6);
+        assertEquals(fixedCost, cost(comparison, fixed), 1e-6);
+        assertEquals(fixedCost, cost(comparison, flatTimeOfUse), 1e-6);
+        assertEquals(spotCalculation.totalConsumption, comparison.aggregates().consumption(), 1e-9);
+    }
+
+    @Test
+    public void testRankingIncludesMonthlyFees() {
+        final var start = Instant.parse("2022-02-28T22:00:00Z");
+        final var end = Instant.parse("2022-04-30T20:00:00Z");
+        final var cheapEnergy = new Contract.Fixed("cheap energy", 10, 100);
+        final var expensiveEnergy = new Contract.Fixed("expensive energy", 11, 0);
+        final var nightHeavy = new Contract.TimeOfUse("night", 1000, 0, 0);
+
+        final var comparison = ContractComparisonService.compare(consumption, start, end, List.of(nightHeavy, cheapEnergy, expensiveEnergy));
+
+        // March and April in Finnish time
+        assertEquals(2, comparison.aggregates().months());
+        assertEquals(200, comparison.costs().stream().filter(cost -> cost.contract() == cheapEnergy).findFirst().orElseThrow().fees(), 0);
+        assertEquals(List.of(expensiveEnergy, cheapEnergy, nightHeavy), comparison.costs().stream().map(ContractComparisonService.ContractCost::contract).toList());
+        final var best = comparison.costs().get(0);
+        assertEquals(best.totalCost() / comparison.aggregates().consumption() * 100, best.averagePrice(), 1e-9);
+    }
+
+    @Test
+    public void testEmptyRangeHasNoRanking() {
+        final var start = Instant.parse("2030-01-01T00:00:00Z");
+        final var comparison = ContractComparisonService.compare(consumption, start, start.plusSeconds(3600), List.of(new Contract.Fixed("fixed", 10, 5)));
+        assertEquals(0, comparison.aggregates().consumption(), 0);
+        assertEquals(List.of(), comparison.costs());
+    }
+
+    private static double cost(ContractComparisonService.Comparison comparison, Contract contract) {
+        return comparison.costs().stream().filter(cost -> cost.contract() == contract).findFirst().orElseThrow().totalCost();
+    }
+
+}
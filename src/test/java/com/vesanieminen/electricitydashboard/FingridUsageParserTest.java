@@ -0,0 +1,97 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.FingridUsageParser;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.FingridUsageData;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.vesanieminen.electricitydashboard.benchmark.FingridUsageParserBenchmark.createUsageCsv;
+import static com.vesanieminen.electricitydashboard.benchmark.FingridUsageParserBenchmark.parseWithOpenCsv;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class FingridUsageParserTest {
+
+    @Test
+    public void testBundledFilesMatchOpenCsv() throws IOException, ParseException {
+        assertMatchesOpenCsv(Path.of("src/main/resources/data/fingrid/consumption.csv"), StandardCharsets.UTF_8);
+        assertMatchesOpenCsv(Path.of("src/main/resources/META-INF/resources/data/consumption-with-null.csv"), StandardCharsets.UTF_8);
+        assertMatchesOpenCsv(Path.of("src/main/resources/META-INF/resources/data/consumption-with-null-only.csv"), StandardCharsets.UTF_8);
+        assertMatchesOpenCsv(Path.of("src/main/resources/META-INF/resources/data/error-consumption.csv"), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testBothFormatsMatchOpenCsv() throws IOException, ParseException {
+        for (boolean isNewFormat : new boolean[]{false, true}) {
+            final var csv = createUsageCsv(1, isNewFormat);
+            final var usageData = FingridUsageParser.parse(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(parseWithOpenCsv(new StringReader(csv)), usageData.data());
+            assertEquals(Instant.parse("2020-01-01T00:00:00Z"), usageData.start());
+            assertEquals(Instant.parse("2020-12-31T23:00:00Z"), usageData.end());
+        }
+    }
+
+    @Test
+    public void testChunksSplitAnywhere() throws ParseException {
+        final var csv = """
+                Mittauspisteen tunnus;Tuotteen tyyppi;Resoluutio;Yksikkötyyppi;Lukeman tyyppi;Alkuaika;Määrä;Laatu\r
+                "1";"2";"PT1H";"kWh";"BN01";"2023-01-16T00:00:00Z";"1.25";"OK"\r
+                1;2;PT1H;kWh;BN01;2023-01-16T01:00:00.000+00:00;0,5;OK\r
+                1;2;PT1H;kWh;BN01;2023-01-16T02:00:00Z;-1.5E-1;OK""".getBytes(StandardCharsets.UTF_8);
+        for (int chunk = 1; chunk <= csv.length; ++chunk) {
+            final var parser = new FingridUsageParser();
+            for (int offset = 0; offset < csv.length; offset += chunk) {
+                parser.feed(csv, offset, Math.min(chunk, csv.length - offset));
+            }
+            final var series = parser.finish().series();
+            assertEquals(3, series.size());
+            assertEquals(Instant.parse("2023-01-16T01:00:00Z"), series.instant(1));
+            assertEquals(1.25, series.value(0), 0);
+            assertEquals(0.5, series.value(1), 0);
+            assertEquals(-0.15, series.value(2), 0);
+        }
+    }
+
+    @Test
+    public void testQuarterHourResolution() throws IOException, ParseException {
+        final var usageData = parse("""
+                Mittauspisteen tunnus;Tuotteen tyyppi;Resoluutio;Yksikkötyyppi;Lukeman tyyppi;Alkuaika;Määrä;Laatu
+                1;2;PT1H;kWh;BN01;2023-10-01T21:00:00Z;1.0;OK
+                1;2;PT15M;kWh;BN01;2023-10-01T22:00:00Z;0.25;OK
+                1;2;PT15M;kWh;BN01;2023-10-01T22:15:00Z;0.5;OK
+                """);
+        assertEquals(Duration.ofMinutes(15), usageData.resolution());
+        assertEquals(Instant.parse("2023-10-01T22:15:00Z"), usageData.end());
+        assertEquals(Duration.ofHours(1), parse(createUsageCsv(1, true)).resolution());
+    }
+
+    @Test
+    public void testInvalidValues() {
+        final var header = "Mittauspisteen tunnus;Tuotteen tyyppi;Resoluutio;Yksikkötyyppi;Alkuaika;Määrä;Laatu\n";
+        assertThrows(ParseException.class, () -> parse(header + "0;0;PT1H;kWh;2022-01-01T00:00:00Z;null;OK\n"));
+        assertThrows(ParseException.class, () -> parse(header + "0;0;PT1H;kWh;2022-02-30T00:00:00Z;1,0;OK\n"));
+        assertThrows(ParseException.class, () -> parse(header + "0;0;PT1H;kWh;2022-01-01T00:00:00Z\n"));
+        assertThrows(ParseException.class, () -> parse(header + "0;0;P1D;kWh;2022-01-01T00:00:00Z;1,0;OK\n"));
+    }
+
+    private static FingridUsageData parse(String csv) throws IOException, ParseException {
+        return FingridUsageParser.parse(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertMatchesOpenCsv(Path file, Charset charset) throws IOException, ParseException {
+        final var expected = parseWithOpenCsv(Files.newBufferedReader(file, charset));
+        assertEquals(expected, PriceCalculatorService.getFingridUsageData(file.toString()).data());
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.HourlyJoin;
+import com.vesanieminen.froniusvisualizer.services.model.HourlyJoin.Gap;
+import com.vesanieminen.froniusvisualizer.services.model.HourlyJoin.Missing;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class HourlyJoinTest {
+
+    private static final long HOUR = SpotPriceSeries.SECONDS_PER_HOUR;
+
+    private static ConsumptionSeries consumption(long... hours) {
+        return ConsumptionSeries.of(LongStream.of(hours).map(hour -> hour * HOUR).toArray(), LongStream.of(hours).asDoubleStream().toArray());
+    }
+
+    private static Instant hour(long hour) {
+        return Instant.ofEpochSecond(hour * HOUR);
+    }
+
+    @Test
+    public void testJoinReportsGapsOnBothSides() {
+        final var spot = SpotPriceSeries.of(new long[]{0, 1, 2, 3, 4, 6, 7, 8, 9}, new double[9]);
+        final var consumption = consumption(2, 3, 4, 5, 7, 8, 12);
+        final var matches = new ArrayList<String>();
+
+        final var coverage = HourlyJoin.join(consumption, 0, consumption.size(), spot, (consumptionIndex, spotIndex) -> matches.add(consumptionIndex + ":" + spotIndex));
+
+        assertEquals(List.of("0:2", "1:3", "2:4", "4:6", "5:7"), matches);
+        assertEquals(5, coverage.matched());
+        assertEquals(2, coverage.missingSpotHours());
+        assertEquals(2, coverage.missingConsumptionHours());
+        assertEquals(List.of(
+                new Gap(Missing.SPOT, hour(5), hour(6)),
+                new Gap(Missing.CONSUMPTION, hour(6), hour(7)),
+                new Gap(Missing.CONSUMPTION, hour(9), hour(10)),
+                new Gap(Missing.SPOT, hour(12), hour(13))
+        ), coverage.gaps());
+    }
+
+    @Test
+    public void testJoinMergesConsecutiveMissingHours() {
+        final var spot = SpotPriceSeries.of(new long[]{0, 1, 2, 3, 4, 5}, new double[6]);
+        final var consumption = consumption(0, 4, 5);
+
+        final var coverage = HourlyJoin.join(consumption, 0, consumption.size(), spot, (consumptionIndex, spotIndex) -> {
+        });
+
+        assertEquals(3, coverage.matched());
+        assertEquals(List.of(new Gap(Missing.CONSUMPTION, hour(1), hour(4))), coverage.gaps());
+    }
+
+    @Test
+    public void testQuartersJoinTheHourTheyStartIn() {
+        final var spot = SpotPriceSeries.of(new long[]{0, 1, 2, 3}, new double[4]);
+        final var quarters = LongStream.of(0, 1, 2, 3, 8, 9, 14, 15).map(quarter -> quarter * 900).toArray();
+        final var consumption = ConsumptionSeries.of(quarters, new double[quarters.length]);
+        final var matches = new ArrayList<Integer>();
+
+        final var coverage = HourlyJoin.join(consumption, 0, consumption.size(), spot, (consumptionIndex, spotIndex) -> matches.add(spotIndex));
+
+        assertEquals(List.of(0, 0, 0, 0, 2, 2, 3, 3), matches);
+        assertEquals(8, coverage.matched());
+        assertEquals(1, coverage.missingConsumptionHours());
+        assertEquals(List.of(new Gap(Missing.CONSUMPTION, hour(1), hour(2))), coverage.gaps());
+    }
+
+    @Test
+    public void testJoinOfRangeOnly() {
+        final var spot = SpotPriceSeries.of(new long[]{0, 1, 2, 3, 4, 5}, new double[6]);
+        final var consumption = consumption(0, 1, 2, 3, 4, 5);
+        final var from = consumption.lowerBound(hour(2));
+        final var to = consumption.upperBound(hour(3));
+
+        final var coverage = HourlyJoin.join(consumption, from, to, spot, (consumptionIndex, spotIndex) -> assertEquals(consumptionIndex, spotIndex));
+
+        assertEquals(2, from);
+        assertEquals(4, to);
+        assertEquals(2, coverage.matched());
+        assertTrue(coverage.isComplete());
+        assertEquals(HourlyJoin.Coverage.EMPTY, HourlyJoin.join(consumption, to, to, spot, (consumptionIndex, spotIndex) -> {
+        }));
+    }
+
+    @Test
+    public void testInterruptedJoinIsCancelled() {
+        final var spot = SpotPriceSeries.of(new long[]{0, 1}, new double[2]);
+        final var consumption = consumption(0, 1);
+        Thread.currentThread().interrupt();
+        assertThrows(CancellationException.class, () -> HourlyJoin.join(consumption, 0, consumption.size(), spot, (consumptionIndex, spotIndex) -> {
+        }));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testBoundsBetweenEntries() {
+        final var consumption = consumption(1, 3, 5);
+        assertEquals(0, consumption.lowerBound(hour(0)));
+        assertEquals(1, consumption.lowerBound(hour(2)));
+        assertEquals(1, consumption.lowerBound(hour(1).plusMillis(1)));
+        assertEquals(1, consumption.upperBound(hour(2)));
+        assertEquals(2, consumption.upperBound(hour(3)));
+        assertEquals(3, consumption.upperBound(hour(7)));
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.fatboyindustrial.gsonjavatime.Converters;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.vesanieminen.electricitydashboard.benchmark.JsonCodecsBenchmark;
+import com.vesanieminen.froniusvisualizer.services.JsonCodecs;
+import com.vesanieminen.froniusvisualizer.services.model.FingridLiteResponse;
+import com.vesanieminen.froniusvisualizer.services.model.FingridRealtimeResponse;
+import com.vesanieminen.froniusvisualizer.services.model.PakastinResponse;
+import com.vesanieminen.froniusvisualizer.services.model.SpotHintaResponse;
+import com.vesanieminen.froniusvisualizer.util.IsoDateTimes;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class JsonCodecsTest {
+
+    private static final Gson reflectiveGson = Converters.registerAll(new GsonBuilder()).create();
+
+    @Test
+    public void testIsoDateTimes() {
+        for (var text : new String[]{"2022-10-10T21:00:00Z", "2020-12-31T22:00:00.000Z", "2024-02-29T23:59:59.123456789+02:00", "1969-12-31T23:00:00-05:30", "2022-03-27T03:00:00+03:00", "2022-10-01T00:03Z"}) {
+            assertEquals(text, ZonedDateTime.parse(text), IsoDateTimes.parseZonedDateTime(text));
+            assertEquals(text, Instant.from(DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(text)), IsoDateTimes.parseInstant(text));
+        }
+        assertEquals(Instant.parse("2022-10-10T21:00:00Z"), IsoDateTimes.parseInstant("2022-10-10T21:00:00+0000"));
+        assertEquals(Instant.parse("2022-10-10T21:00:00Z"), IsoDateTimes.parseInstant("2022-10-11T00:00:00+03"));
+        // Other formats go through the formatter
+        assertEquals(ZonedDateTime.parse("2022-10-10T21:00:00+03:00[Europe/Helsinki]"), IsoDateTimes.parseZonedDateTime("2022-10-10T21:00:00+03:00[Europe/Helsinki]"));
+        assertThrows(RuntimeException.class, () -> IsoDateTimes.parseInstant("2022-02-30T21:00:00Z"));
+        assertThrows(RuntimeException.class, () -> IsoDateTimes.parseInstant("2022-10-10T21:00:00"));
+    }
+
+    @Test
+    public void testPakastinAdapterMatchesReflection() throws IOException {
+        final var json = Files.readString(Path.of(pakastinTempFile));
+        final var expected = reflectiveGson.fromJson(json, PakastinResponse.class).prices;
+        final var actual = JsonCodecs.gson.fromJson(json, PakastinResponse.class).prices;
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).date, actual.get(i).date);
+            assertEquals(expected.get(i).value, actual.get(i).value, 0);
+        }
+    }
+
+    @Test
+    public void testFingridAndSpotHintaAdaptersMatchReflection() {
+        final var realtimeJson = JsonCodecsBenchmark.createFingridRealtimeJson(100);
+        final var expected = reflectiveGson.fromJson(realtimeJson, FingridRealtimeResponse.class);
+        final var actual = JsonCodecs.gson.fromJson(realtimeJson, FingridRealtimeResponse.class);
+        assertEquals(expected.NetImportExport.size(), actual.NetImportExport.size());
+        for (int i = 0; i < expected.NetImportExport.size(); ++i) {
+            assertEquals(expected.NetImportExport.get(i).start_time, actual.NetImportExport.get(i).start_time);
+            assertEquals(expected.NetImportExport.get(i).value, actual.NetImportExport.get(i).value, 0);
+        }
+
+        final var liteJson = "[{\"value\":1234.5,\"start_time\":\"2022-10-10T21:00:00+0000\",\"end_time\":\"2022-10-10T22:00:00+0000\"},{\"value\":null,\"start_time\":\"2022-10-10T22:00:00+0000\"}]";
+        final var expectedLite = reflectiveGson.fromJson(liteJson, FingridLiteResponse[].class);
+        final var actualLite = JsonCodecs.gson.fromJson(liteJson, FingridLiteResponse[].class);
+        for (int i = 0; i < expectedLite.length; ++i) {
+            assertEquals(expectedLite[i].start_time, actualLite[i].start_time);
+            assertEquals(expectedLite[i].value, actualLite[i].value, 0);
+        }
+
+        final var spotHintaJson = "[{\"TimeStamp\":\"2022-11-05T13:00:00+02:00\",\"Temperature\":4.2},{\"TimeStamp\":null,\"Temperature\":-1}]";
+        final var expectedSpotHinta = reflectiveGson.fromJson(spotHintaJson, SpotHintaResponse[].class);
+        final var actualSpotHinta = JsonCodecs.gson.fromJson(spotHintaJson, SpotHintaResponse[].class);
+        assertEquals(expectedSpotHinta[0].TimeStamp, actualSpotHinta[0].TimeStamp);
+        assertEquals(expectedSpotHinta[0].Temperature, actualSpotHinta[0].Temperature, 0);
+        assertNull(actualSpotHinta[1].TimeStamp);
+        assertEquals(-1, actualSpotHinta[1].Temperature, 0);
+    }
+
+}
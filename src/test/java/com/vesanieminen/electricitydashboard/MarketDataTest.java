@@ -0,0 +1,56 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.MarketData;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MarketDataTest {
+
+    @Test
+    public void testReadersSeeConsistentSnapshots() throws IOException, InterruptedException {
+        final var full = SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices);
+        final var hours = IntStream.range(0, full.size()).mapToLong(full::epochHour).toArray();
+        final var prices = IntStream.range(0, full.size()).mapToDouble(full::price).toArray();
+        final var shorter = SpotPriceSeries.of(Arrays.copyOf(hours, hours.length - 48), Arrays.copyOf(prices, prices.length - 48));
+        PriceCalculatorService.updateSpotData(full);
+
+        final var isRunning = new AtomicBoolean(true);
+        final var inconsistent = new AtomicInteger();
+        final var readers = IntStream.range(0, 4).mapToObj(i -> new Thread(() -> {
+            while (isRunning.get()) {
+                final var spot = MarketData.get().spot();
+                final var series = spot.series();
+                final var lastDay = series.instant(series.size() - 1).atZone(fiZoneID).toLocalDate();
+                if (spot.pricesWithVat().length != series.size() || spot.rollups().day(lastDay).isEmpty()) {
+                    inconsistent.incrementAndGet();
+                }
+            }
+        })).toList();
+        readers.forEach(Thread::start);
+        for (int i = 0; i < 50; ++i) {
+            PriceCalculatorService.updateSpotData(i % 2 == 0 ? shorter : full);
+        }
+        isRunning.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(0, inconsistent.get());
+        assertSame(full, PriceCalculatorService.getSpotData());
+    }
+
+}
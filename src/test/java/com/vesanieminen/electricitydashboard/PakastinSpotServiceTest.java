@@ -1,9 +1,33 @@
 package com.vesanieminen.electricitydashboard;
 
+import com.sun.net.httpserver.HttpServer;
+import com.vesanieminen.froniusvisualizer.services.PakastinSpotService;
+import com.vesanieminen.froniusvisualizer.services.StreamingJson;
+import com.vesanieminen.froniusvisualizer.services.UpstreamClient;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.incrementalOverlapHours;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mergeIncremental;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.writeSpotDataFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 @Slf4j
 public class PakastinSpotServiceTest {
@@ -15,4 +39,98 @@ public class PakastinSpotServiceTest {
         //Files.write(Paths.get(pakastinFile), stringHttpResponse.body().getBytes());
     }
 
+    private static SpotPriceSeries slice(SpotPriceSeries series, int fromIndex, int toIndex) {
+        final var hours = IntStream.range(fromIndex, toIndex).mapToLong(series::epochHour).toArray();
+        final var prices = IntStream.range(fromIndex, toIndex).mapToDouble(series::price).toArray();
+        return SpotPriceSeries.of(hours, prices);
+    }
+
+    private static double[] prices(SpotPriceSeries series) {
+        return IntStream.range(0, series.size()).mapToDouble(series::price).toArray();
+    }
+
+    @Test
+    public void testIncrementalMerge() throws IOException {
+        final var full = SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices);
+        final var highWaterMarkIndex = full.size() - 30;
+        final var stored = slice(full, 0, highWaterMarkIndex + 1);
+        final var fetched = slice(full, highWaterMarkIndex - incrementalOverlapHours, full.size());
+        final var merged = mergeIncremental(stored, fetched);
+        assertEquals(full.size(), merged.size());
+        assertEquals(full.end(), merged.end());
+        assertArrayEquals(prices(full), prices(merged), 0);
+
+        // A gap between the stored and the fetched hours fails the consistency check
+        assertNull(mergeIncremental(stored, slice(full, highWaterMarkIndex + 2, full.size())));
+        assertNull(mergeIncremental(stored, SpotPriceSeries.EMPTY));
+    }
+
+    @Test
+    public void testWrittenFileReadsBackIdentically() throws IOException {
+        final var series = SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices);
+        final var file = Files.createTempFile("pakastin", ".json");
+        try {
+            writeSpotDataFile(series, file);
+            final var readBack = SpotPriceSeries.of(mapToResponse(Files.readString(file)).prices);
+            assertEquals(series.start(), readBack.start());
+            assertEquals(series.end(), readBack.end());
+            assertArrayEquals(prices(series), prices(readBack), 0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testStreamingDecodeMatchesObjectMapping() throws IOException {
+        final var path = Path.of(pakastinTempFile);
+        final var expected = SpotPriceSeries.of(mapToResponse(Files.readString(path)).prices);
+        final var startTime = System.nanoTime();
+        final var decoded = StreamingJson.read(path, PakastinSpotService::decodeSeries);
+        log.info("Decoded " + decoded.size() + " hours in " + (System.nanoTime() - startTime) / 1e6 + " ms");
+        assertEquals(expected.size(), decoded.size());
+        assertEquals(expected.start(), decoded.start());
+        assertArrayEquals(prices(expected), prices(decoded), 0);
+    }
+
+    @Test
+    public void testRequestedFullRefresh() throws IOException {
+        final var body = new AtomicReference<>("{\"prices\":[{\"date\":\"2022-11-01T00:00:00.000Z\",\"value\":100},{\"date\":\"2022-11-01T01:00:00.000Z\",\"value\":200}]}");
+        final var query = new AtomicReference<String>();
+        final var server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/prices", exchange -> {
+            query.set(exchange.getRequestURI().getQuery());
+            final var bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        final var store = Files.createTempFile("pakastin-spot", ".bin");
+        UpstreamClient.overrideBaseUrl("https://sahkotin.fi", "http://localhost:" + server.getAddress().getPort());
+        PakastinSpotService.setSpotPriceStore(store);
+        try {
+            final var stored = SpotPriceSeries.of(new long[]{Instant.parse("2022-10-31T23:00:00Z").getEpochSecond() / 3600}, new double[]{5});
+
+            PakastinSpotService.requestFullRefresh();
+            final var refreshed = PakastinSpotService.syncSpotData(stored);
+            // the whole history is downloaded instead of the hours after the stored ones
+            assertTrue(query.get().contains("start=2020-12-31T22:00:00Z"));
+            assertArrayEquals(new double[]{10, 20}, prices(refreshed), 0);
+            assertTrue(Files.size(store) > 0);
+
+            // an empty download keeps the stored prices and does not overwrite the store
+            Files.delete(store);
+            body.set("{\"prices\":[]}");
+            PakastinSpotService.requestFullRefresh();
+            assertSame(refreshed, PakastinSpotService.syncSpotData(refreshed));
+            assertFalse(Files.exists(store));
+        } finally {
+            PakastinSpotService.setSpotPriceStore(Path.of(PakastinSpotService.spotPriceStoreFile));
+            UpstreamClient.clearBaseUrlOverrides();
+            server.stop(0);
+            Files.deleteIfExists(store);
+        }
+    }
+
 }
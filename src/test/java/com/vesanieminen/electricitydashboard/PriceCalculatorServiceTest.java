@@ -1,13 +1,174 @@
 package com.vesanieminen.electricitydashboard;
 
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.HourValue;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.SpotCalculation;
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static com.vesanieminen.froniusvisualizer.util.Utils.divide;
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+import static com.vesanieminen.froniusvisualizer.util.Utils.sum;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 public class PriceCalculatorServiceTest {
 
+    private static final String consumptionFile = "src/main/resources/data/fingrid/consumption.csv";
+    private static final Instant vat10Instant = Instant.from(ZonedDateTime.of(2022, 12, 1, 0, 0, 0, 0, fiZoneID));
+
+    private static LinkedHashMap<Instant, Double> consumption;
+    private static LinkedHashMap<Instant, Double> spotData;
+
+    @BeforeClass
+    public static void setUp() throws IOException, ParseException {
+        final var pakastinResponse = mapToResponse(Files.readString(Path.of(pakastinTempFile)));
+        PriceCalculatorService.updateSpotData(SpotPriceSeries.of(pakastinResponse.prices));
+        spotData = new LinkedHashMap<>();
+        pakastinResponse.prices.forEach(price -> spotData.put(price.date, price.value / 10));
+        consumption = PriceCalculatorService.getFingridUsageData(consumptionFile).data();
+    }
+
     @Test
     public void test() {
         final var doubles = new double[24];
         doubles[23] = 0.0;
     }
 
+    @Test
+    public void testSpotCalculationMatchesStreamImplementation() {
+        assertSameCalculation(calculateWithStreams(consumption, 0.5, 1.24), PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0.5, 1.24));
+        assertSameCalculation(calculateWithStreams(consumption, 0, 1), PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0, 1));
+    }
+
+    @Test
+    public void testSpotCalculationMatchesStreamImplementationForRange() {
+        final var start = Instant.parse("2022-03-27T00:00:00Z");
+        final var end = Instant.parse("2022-04-30T23:00:00Z");
+        assertSameCalculation(calculateWithStreams(getDateTimeRange(consumption, start, end), 0.25, 1.24), PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0.25, 1.24, start, end));
+    }
+
+    @Test
+    public void testSpotCalculationCoversBundledConsumption() {
+        final var coverage = PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0.5, 1.24).coverage;
+        assertEquals(consumption.size(), coverage.matched());
+        assertTrue(coverage.isComplete());
+    }
+
+    @Test
+    public void testQuarterHourConsumptionCostsTheSameAsHourly() {
+        final var hourly = ConsumptionSeries.of(consumption);
+        final var seconds = new long[hourly.size() * 4];
+        final var values = new double[hourly.size() * 4];
+        for (int i = 0; i < seconds.length; ++i) {
+            seconds[i] = hourly.epochSecond(i / 4) + (i % 4) * 900L;
+            values[i] = hourly.value(i / 4) / 4;
+        }
+        final var expected = PriceCalculatorService.calculateSpotElectricityPriceDetails(hourly, 0, hourly.size(), 0.5, 1.24);
+        final var quarterly = PriceCalculatorService.calculateSpotElectricityPriceDetails(ConsumptionSeries.of(seconds, values), 0, seconds.length, 0.5, 1.24);
+        assertEquals(expected.totalCost, quarterly.totalCost, 1e-9);
+        assertEquals(expected.totalConsumption, quarterly.totalConsumption, 1e-9);
+        assertEquals(expected.averagePrice, quarterly.averagePrice, 1e-9);
+        assertArrayEquals(expected.spotAverage, quarterly.spotAverage, 1e-9);
+        assertArrayEquals(expected.costHours, quarterly.costHours, 1e-9);
+        assertEquals(expected.start, quarterly.start);
+        assertTrue(quarterly.coverage.isComplete());
+    }
+
+    @Test
+    public void testSpotCalculationOfEmptyConsumption() {
+        assertSameCalculation(calculateWithStreams(new LinkedHashMap<>(), 0.5, 1.24), PriceCalculatorService.calculateSpotElectricityPriceDetails(new LinkedHashMap<>(), 0.5, 1.24));
+    }
+
+    private static void assertSameCalculation(SpotCalculation expected, SpotCalculation actual) {
+        assertEquals(expected.totalSpotPrice, actual.totalSpotPrice, 0);
+        assertEquals(expected.totalSpotPriceWithoutMargin, actual.totalSpotPriceWithoutMargin, 0);
+        assertEquals(expected.totalCost, actual.totalCost, 0);
+        assertEquals(expected.totalCostWithoutMargin, actual.totalCostWithoutMargin, 0);
+        assertEquals(expected.totalConsumption, actual.totalConsumption, 0);
+        assertEquals(expected.averagePrice, actual.averagePrice, 0);
+        assertEquals(expected.averagePriceWithoutMargin, actual.averagePriceWithoutMargin, 0);
+        assertEquals(expected.start, actual.start);
+        assertEquals(expected.end, actual.end);
+        assertArrayEquals(expected.consumptionHours, actual.consumptionHours, 0);
+        assertArrayEquals(expected.costHours, actual.costHours, 0);
+        assertArrayEquals(expected.spotAverage, actual.spotAverage, 0);
+    }
+
+    // The baseline stream implementation the single pass one replaced, ported as it was with the spot prices in a map
+    // and the VAT and the hours of its own instead of VatTimeline and CalendarIndex
+    private static SpotCalculation calculateWithStreams(LinkedHashMap<Instant, Double> fingridConsumptionData, double margin, double vat) {
+        final var spotCalculation = fingridConsumptionData.keySet().stream().filter(spotData::containsKey)
+                .map(item -> new SpotCalculation(
+                        spotData.get(item) * getVAT(item, vat) + margin,
+                        spotData.get(item) * getVAT(item, vat),
+                        (spotData.get(item) * getVAT(item, vat) + margin) * fingridConsumptionData.get(item),
+                        spotData.get(item) * getVAT(item, vat) * fingridConsumptionData.get(item),
+                        fingridConsumptionData.get(item),
+                        item,
+                        item,
+                        new HourValue(item.atZone(fiZoneID).getHour(), fingridConsumptionData.get(item)),
+                        new HourValue(item.atZone(fiZoneID).getHour(), (spotData.get(item) * getVAT(item, vat) + margin) * fingridConsumptionData.get(item) / 100),
+                        new HourValue(item.atZone(fiZoneID).getHour(), spotData.get(item) * getVAT(item, vat))
+                ))
+                .reduce(new SpotCalculation(
+                        0,
+                        0,
+                        0,
+                        0,
+                        0,
+                        Instant.MAX,
+                        Instant.MIN,
+                        HourValue.Zero(),
+                        HourValue.Zero(),
+                        HourValue.Zero()
+                ), (i1, i2) -> new SpotCalculation(
+                        i1.totalSpotPrice + i2.totalSpotPrice,
+                        i1.totalSpotPriceWithoutMargin + i2.totalSpotPriceWithoutMargin,
+                        i1.totalCost + i2.totalCost,
+                        i1.totalCostWithoutMargin + i2.totalCostWithoutMargin,
+                        i1.totalConsumption + i2.totalConsumption,
+                        i1.start.compareTo(i2.start) < 0 ? i1.start : i2.start,
+                        i1.end.compareTo(i2.end) > 0 ? i1.end : i2.end,
+                        sum(i1.consumptionHours, i2.consumptionHours),
+                        sum(i1.costHours, i2.costHours),
+                        sum(i1.spotAverage, i2.spotAverage)
+                ));
+        final var count = fingridConsumptionData.keySet().stream().filter(spotData::containsKey).count();
+        spotCalculation.averagePrice = spotCalculation.totalSpotPrice / count;
+        spotCalculation.averagePriceWithoutMargin = spotCalculation.totalSpotPriceWithoutMargin / count;
+        spotCalculation.totalCost = spotCalculation.totalCost / 100;
+        spotCalculation.totalCostWithoutMargin = spotCalculation.totalCostWithoutMargin / 100;
+        divide(spotCalculation.spotAverage, count / 24.0);
+        return spotCalculation;
+    }
+
+    private static LinkedHashMap<Instant, Double> getDateTimeRange(LinkedHashMap<Instant, Double> fingridConsumptionData, Instant start, Instant end) {
+        return fingridConsumptionData.entrySet().stream().filter(item ->
+                (start.compareTo(item.getKey()) <= 0 && 0 <= end.compareTo(item.getKey()))
+        ).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (x, y) -> y, LinkedHashMap::new));
+    }
+
+    private static double getVAT(Instant instant, double vat) {
+        if (vat == 1) {
+            return 1;
+        }
+        return 0 <= instant.compareTo(vat10Instant) ? 1.10 : 1.24;
+    }
+
 }
@@ -0,0 +1,89 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.RefreshPipeline;
+import com.vesanieminen.froniusvisualizer.services.RefreshPipeline.Status;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshPipelineTest {
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Runnable sleep(long millis) {
+        return () -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @Test
+    public void testIndependentStagesRunConcurrently() {
+        final var fileWritten = new AtomicBoolean();
+        final var pipeline = RefreshPipeline.builder()
+                .stage("a", sleep(300))
+                .stage("b", sleep(300))
+                .stage("c", sleep(300))
+                .stage("file", () -> {
+                    sleep(100).run();
+                    fileWritten.set(true);
+                })
+                .stage("publish", () -> assertTrue(fileWritten.get()), "file")
+                .build();
+
+        final var startTime = System.nanoTime();
+        final var results = pipeline.run(executor);
+        final var millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        assertTrue("took " + millis + " ms", millis < 800);
+        assertEquals(List.of("a", "b", "c", "file", "publish"), results.stream().map(RefreshPipeline.StageResult::name).toList());
+        assertTrue(results.stream().allMatch(result -> result.status() == Status.SUCCEEDED));
+    }
+
+    @Test
+    public void testFailureSkipsOnlyDependents() {
+        final var independentRan = new AtomicBoolean();
+        final var pipeline = RefreshPipeline.builder()
+                .stage("file", () -> {
+                    throw new IllegalStateException("upstream down");
+                })
+                .stage("publish", () -> {
+                }, "file")
+                .stage("after-publish", () -> {
+                }, "publish")
+                .stage("independent", () -> independentRan.set(true))
+                .build();
+
+        final var results = pipeline.run(executor);
+
+        assertEquals(List.of(Status.FAILED, Status.SKIPPED, Status.SKIPPED, Status.SUCCEEDED), results.stream().map(RefreshPipeline.StageResult::status).toList());
+        assertTrue(independentRan.get());
+    }
+
+    @Test
+    public void testDependenciesMustBeDeclaredFirst() {
+        assertThrows(IllegalArgumentException.class, () -> RefreshPipeline.builder().stage("publish", () -> {
+        }, "file"));
+        assertThrows(IllegalArgumentException.class, () -> RefreshPipeline.builder().stage("a", () -> {
+        }).stage("a", () -> {
+        }));
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.RefreshPipeline;
+import com.vesanieminen.froniusvisualizer.services.RefreshScheduler;
+import com.vesanieminen.froniusvisualizer.services.RefreshScheduler.Cadence;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class RefreshSchedulerTest {
+
+    private static final ZoneId helsinki = ZoneId.of("Europe/Helsinki");
+    private static final Cadence daily = Cadence.daily(LocalTime.of(13, 45), helsinki, Duration.ofHours(1), Duration.ofMinutes(5));
+    private static final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Instant helsinki(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, helsinki).toInstant();
+    }
+
+    @Test
+    public void testDailyPublicationFollowsDst() {
+        // DST starts on 2023-03-26, 13:45 is 11:45 UTC before it and 10:45 UTC after it
+        assertEquals(Instant.parse("2023-03-25T11:45:00Z"), daily.nextPublication(helsinki(2023, 3, 25, 12, 0)));
+        assertEquals(Instant.parse("2023-03-26T10:45:00Z"), daily.nextPublication(helsinki(2023, 3, 25, 14, 0)));
+        assertEquals(Instant.parse("2023-03-26T10:45:00Z"), daily.lastPublication(helsinki(2023, 3, 27, 13, 44)));
+        // DST ends on 2023-10-29
+        assertEquals(Instant.parse("2023-10-29T11:45:00Z"), daily.nextPublication(helsinki(2023, 10, 28, 13, 45)));
+    }
+
+    @Test
+    public void testDailyPollsUntilUpToDate() {
+        final var publication = helsinki(2023, 3, 26, 13, 45);
+        assertEquals(publication.plus(Duration.ofMinutes(5)), daily.nextRun(publication, false));
+        assertEquals(helsinki(2023, 3, 27, 13, 45), daily.nextRun(publication, true));
+        // after the publish window the source is polled at the late interval
+        final var late = helsinki(2023, 3, 26, 15, 0);
+        assertEquals(late.plus(RefreshScheduler.LATE_POLL_INTERVAL), daily.nextRun(late, false));
+        // but not past the next publication
+        final var beforeNext = helsinki(2023, 3, 27, 13, 15);
+        assertEquals(helsinki(2023, 3, 27, 13, 45), daily.nextRun(beforeNext, false));
+    }
+
+    @Test
+    public void testPeriodicRunsAreAligned() {
+        final var cadence = Cadence.every(Duration.ofMinutes(3), Duration.ofSeconds(30));
+        assertEquals(Instant.parse("2023-01-01T10:03:30Z"), cadence.nextRun(Instant.parse("2023-01-01T10:01:07Z"), false));
+        assertEquals(Instant.parse("2023-01-01T10:00:30Z"), cadence.lastPublication(Instant.parse("2023-01-01T10:03:29Z")));
+        assertEquals(Instant.parse("2023-01-01T10:06:30Z"), cadence.nextRun(Instant.parse("2023-01-01T10:03:30Z"), true));
+    }
+
+    @Test
+    public void testStatus() throws InterruptedException {
+        final var now = helsinki(2023, 3, 26, 14, 0);
+        final var hourly = Cadence.every(Duration.ofHours(1), Duration.ZERO);
+        final var scheduler = new RefreshScheduler(executor, Clock.fixed(now, helsinki))
+                .source("daily", daily, () -> {
+                }, publication -> false)
+                .source("failing", hourly, () -> {
+                    throw new IllegalStateException("unavailable");
+                })
+                .source("initial", hourly, () -> {
+                })
+                .source("later", hourly, () -> {
+                });
+        scheduler.start(List.of(new RefreshPipeline.StageResult("daily", RefreshPipeline.Status.SKIPPED, Duration.ZERO),
+                new RefreshPipeline.StageResult("initial", RefreshPipeline.Status.SUCCEEDED, Duration.ZERO),
+                new RefreshPipeline.StageResult("failing", RefreshPipeline.Status.FAILED, Duration.ZERO)));
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scheduler.getStatus().stream().limit(3).anyMatch(status -> status.lastRun() == null) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        final var status = scheduler.getStatus();
+
+        final var dailyStatus = status.get(0);
+        assertEquals(now, dailyStatus.lastSuccess());
+        assertNull(dailyStatus.upToDate());
+        assertEquals(now.plus(Duration.ofMinutes(5)), dailyStatus.nextRun());
+        assertEquals(Duration.ofMinutes(15), dailyStatus.staleness());
+
+        final var failingStatus = status.get(1);
+        assertEquals(now, failingStatus.lastRun());
+        assertNull(failingStatus.lastSuccess());
+        assertEquals(1, failingStatus.failures());
+        assertEquals(Duration.ZERO, failingStatus.staleness());
+        assertEquals(helsinki(2023, 3, 26, 15, 0), failingStatus.nextRun());
+
+        final var initialStatus = status.get(2);
+        assertEquals(now, initialStatus.upToDate());
+        assertEquals(Duration.ZERO, initialStatus.staleness());
+        assertEquals(helsinki(2023, 3, 26, 15, 0), initialStatus.nextRun());
+
+        // a source that was not part of the initial refresh waits for its next publication
+        final var laterStatus = status.get(3);
+        assertNull(laterStatus.lastRun());
+        assertEquals(helsinki(2023, 3, 26, 15, 0), laterStatus.nextRun());
+    }
+
+    @Test
+    public void testErrorDoesNotStopTheRuns() throws InterruptedException {
+        final var now = helsinki(2023, 3, 26, 14, 0);
+        final var scheduler = new RefreshScheduler(executor, Clock.fixed(now, helsinki))
+                .source("error", Cadence.every(Duration.ofHours(1), Duration.ZERO), () -> {
+                    throw new AssertionError("unavailable");
+                });
+        scheduler.start(List.of(new RefreshPipeline.StageResult("error", RefreshPipeline.Status.FAILED, Duration.ZERO)));
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scheduler.getStatus().get(0).lastRun() == null && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        final var status = scheduler.getStatus().get(0);
+        assertEquals(1, status.failures());
+        assertEquals(helsinki(2023, 3, 26, 15, 0), status.nextRun());
+    }
+
+    @Test
+    public void testDuplicateSource() {
+        final var scheduler = new RefreshScheduler(executor, Clock.systemUTC()).source("a", daily, () -> {
+        });
+        assertThrows(IllegalArgumentException.class, () -> scheduler.source("a", daily, () -> {
+        }));
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.sun.net.httpserver.HttpServer;
+import com.vesanieminen.froniusvisualizer.services.ResponseCache;
+import com.vesanieminen.froniusvisualizer.services.StreamingJson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ResponseCacheTest {
+
+    private static final StreamingJson.Decoder<int[]> decoder = StreamingJson.decoderOf(int[].class);
+
+    private HttpServer server;
+    private String baseUrl;
+    private Path directory;
+    private final AtomicReference<String> body = new AtomicReference<>("[1,2,3]");
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+    private final AtomicInteger staleResponses = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("upstream-cache");
+        ResponseCache.setDirectory(directory);
+        ResponseCache.reset();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // the body is its own ETag
+        server.createContext("/etag", exchange -> {
+            final var etag = "\"" + body.get().hashCode() + "\"";
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedResponses.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("ETag", etag);
+            send(exchange, body.get());
+        });
+        server.createContext("/plain", exchange -> send(exchange, body.get()));
+        // a proxy answering 304 to the first request whether or not it is conditional
+        server.createContext("/stale", exchange -> {
+            if (staleResponses.getAndIncrement() == 0) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            send(exchange, body.get());
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private static void send(com.sun.net.httpserver.HttpExchange exchange, String body) throws IOException {
+        final var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ResponseCache.setDirectory(Path.of(ResponseCache.defaultDirectory));
+        server.stop(0);
+    }
+
+    @Test
+    public void testNotModified() {
+        assertArrayEquals(new int[]{1, 2, 3}, ResponseCache.fetch("etag", baseUrl + "/etag", decoder).orElseThrow());
+        assertEquals(Optional.empty(), ResponseCache.fetch("etag", baseUrl + "/etag", decoder));
+        assertEquals(1, notModifiedResponses.get());
+
+        body.set("[4]");
+        assertArrayEquals(new int[]{4}, ResponseCache.fetch("etag", baseUrl + "/etag", decoder).orElseThrow());
+    }
+
+    @Test
+    public void testNotModifiedAfterRestartReturnsCachedBody() {
+        ResponseCache.fetch("etag", baseUrl + "/etag", decoder);
+        ResponseCache.reset();
+        assertArrayEquals(new int[]{1, 2, 3}, ResponseCache.fetch("etag", baseUrl + "/etag", decoder).orElseThrow());
+        assertEquals(1, notModifiedResponses.get());
+    }
+
+    @Test
+    public void testUnchangedBodyWithoutValidators() {
+        final var unchanged = ResponseCache.getStats().unchanged();
+        assertArrayEquals(new int[]{1, 2, 3}, ResponseCache.fetch("plain", baseUrl + "/plain", decoder).orElseThrow());
+        assertEquals(Optional.empty(), ResponseCache.fetch("plain", baseUrl + "/plain", decoder));
+        assertEquals(unchanged + 1, ResponseCache.getStats().unchanged());
+
+        body.set("[5,6]");
+        assertArrayEquals(new int[]{5, 6}, ResponseCache.fetch("plain", baseUrl + "/plain", decoder).orElseThrow());
+    }
+
+    @Test
+    public void testWholeBodyIsCachedWhenTheDecoderStopsEarly() throws IOException {
+        body.set(IntStream.range(0, 10000).mapToObj(Integer::toString).collect(Collectors.joining(",", "[", "]")));
+        final StreamingJson.Decoder<Integer> first = reader -> {
+            reader.beginArray();
+            return reader.nextInt();
+        };
+        assertEquals(Optional.of(0), ResponseCache.fetch("plain", baseUrl + "/plain", first));
+        try (var files = Files.list(directory)) {
+            final var bodies = files.filter(file -> file.getFileName().toString().endsWith(".body")).toList();
+            assertEquals(1, bodies.size());
+            assertEquals(body.get(), Files.readString(bodies.get(0)));
+        }
+        assertEquals(Optional.empty(), ResponseCache.fetch("plain", baseUrl + "/plain", first));
+    }
+
+    @Test
+    public void testOnlyChangedBodiesAreDecoded() {
+        // the bodies differ only after the first read buffer
+        final var prefix = IntStream.range(0, 5000).mapToObj(i -> "1").collect(Collectors.joining(","));
+        body.set("[" + prefix + ",2]");
+        final var decoded = new AtomicInteger();
+        final StreamingJson.Decoder<int[]> counting = reader -> {
+            decoded.incrementAndGet();
+            return decoder.decode(reader);
+        };
+        assertEquals(5001, ResponseCache.fetch("plain", baseUrl + "/plain", counting).orElseThrow().length);
+        assertEquals(Optional.empty(), ResponseCache.fetch("plain", baseUrl + "/plain", counting));
+        assertEquals(1, decoded.get());
+
+        body.set("[" + prefix + ",3,4]");
+        final var changed = ResponseCache.fetch("plain", baseUrl + "/plain", counting).orElseThrow();
+        assertEquals(2, decoded.get());
+        assertEquals(5002, changed.length);
+        assertEquals(4, changed[5001]);
+
+        // a body that is a prefix of the cached one
+        body.set("[" + prefix + "]\n");
+        assertEquals(5000, ResponseCache.fetch("plain", baseUrl + "/plain", counting).orElseThrow().length);
+        body.set("[" + prefix + "]");
+        assertEquals(5000, ResponseCache.fetch("plain", baseUrl + "/plain", counting).orElseThrow().length);
+        assertEquals(4, decoded.get());
+    }
+
+    @Test
+    public void testNotModifiedWithoutCachedBodyIsRequestedAgain() {
+        assertArrayEquals(new int[]{1, 2, 3}, ResponseCache.fetch("stale", baseUrl + "/stale", decoder).orElseThrow());
+        assertEquals(2, staleResponses.get());
+    }
+
+    @Test
+    public void testValidatorsAreOnlySentForTheCachedUrl() {
+        ResponseCache.fetch("etag", baseUrl + "/etag", decoder);
+        // the same body from another URL is still recognized by its hash
+        assertEquals(Optional.empty(), ResponseCache.fetch("etag", baseUrl + "/etag?other", decoder));
+        assertEquals(0, notModifiedResponses.get());
+    }
+
+}
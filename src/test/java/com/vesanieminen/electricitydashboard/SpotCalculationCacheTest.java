@@ -0,0 +1,65 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.SpotCalculationCache;
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import com.vesanieminen.froniusvisualizer.services.model.TransferTariff;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SpotCalculationCacheTest {
+
+    private static final Instant start = Instant.parse("2022-01-01T00:00:00Z");
+    private static final Instant end = Instant.parse("2022-06-01T00:00:00Z");
+    private static SpotPriceSeries spotPrices;
+    private static ConsumptionSeries consumption;
+
+    @BeforeClass
+    public static void setUp() throws IOException, ParseException {
+        spotPrices = SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices);
+        PriceCalculatorService.updateSpotData(spotPrices);
+        consumption = PriceCalculatorService.getFingridUsageData("src/main/resources/data/fingrid/consumption.csv").series();
+    }
+
+    @Test
+    public void testSameContentAndParametersHit() {
+        final var sameContent = ConsumptionSeries.of(new PriceCalculatorService.FingridUsageData(consumption, Duration.ofHours(1)).data());
+        final var before = SpotCalculationCache.getStats();
+
+        final var calculation = SpotCalculationCache.calculateSpotElectricityPriceDetails(consumption, 0.3, 1.24, TransferTariff.seasonal(4, 2), start, end);
+        assertSame(calculation, SpotCalculationCache.calculateSpotElectricityPriceDetails(sameContent, 0.3, 1.24, TransferTariff.seasonal(4, 2), start, end));
+        assertNotSame(calculation, SpotCalculationCache.calculateSpotElectricityPriceDetails(consumption, 0.4, 1.24, TransferTariff.seasonal(4, 2), start, end));
+        assertNotSame(calculation, SpotCalculationCache.calculateSpotElectricityPriceDetails(consumption, 0.3, 1.24, TransferTariff.seasonal(4, 3), start, end));
+        assertEquals(PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0.3, 1.24, TransferTariff.seasonal(4, 2), start, end).totalCost, calculation.totalCost, 0);
+
+        final var stats = SpotCalculationCache.getStats();
+        assertEquals(1, stats.hits() - before.hits());
+        assertEquals(3, stats.misses() - before.misses());
+    }
+
+    @Test
+    public void testNewSpotPricesInvalidate() {
+        final var calculation = SpotCalculationCache.calculateSpotElectricityPriceDetails(consumption, 0.5, 1.24, TransferTariff.NONE, start, end);
+        assertSame(calculation, SpotCalculationCache.calculateSpotElectricityPriceDetails(consumption, 0.5, 1.24, TransferTariff.NONE, start, end));
+
+        PriceCalculatorService.updateSpotData(spotPrices);
+
+        assertEquals(0, SpotCalculationCache.getStats().size());
+        assertNotSame(calculation, SpotCalculationCache.calculateSpotElectricityPriceDetails(consumption, 0.5, 1.24, TransferTariff.NONE, start, end));
+    }
+
+}
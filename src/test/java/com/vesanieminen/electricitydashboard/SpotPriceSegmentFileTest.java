@@ -0,0 +1,70 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.SpotPriceSegmentFile;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+@Slf4j
+public class SpotPriceSegmentFileTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("spot", ".bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final var jsonFile = Path.of(pakastinTempFile);
+        final var series = SpotPriceSeries.of(mapToResponse(Files.readString(jsonFile)).prices);
+        SpotPriceSegmentFile.write(series, file);
+        log.info("JSON: " + Files.size(jsonFile) + " bytes, segment file: " + Files.size(file) + " bytes");
+
+        final var startTime = System.nanoTime();
+        final var readBack = SpotPriceSegmentFile.read(file);
+        log.info("Loaded " + readBack.size() + " hours in " + (System.nanoTime() - startTime) / 1e6 + " ms");
+        assertEquals(series.size(), readBack.size());
+        assertArrayEquals(IntStream.range(0, series.size()).mapToLong(series::epochHour).toArray(), IntStream.range(0, readBack.size()).mapToLong(readBack::epochHour).toArray());
+        assertArrayEquals(IntStream.range(0, series.size()).mapToDouble(series::price).toArray(), IntStream.range(0, readBack.size()).mapToDouble(readBack::price).toArray(), 0);
+    }
+
+    @Test
+    public void testCorruptedFilesAreRejected() throws IOException {
+        SpotPriceSegmentFile.write(SpotPriceSeries.of(new long[]{1, 2, 3}, new double[]{1.5, 2.5, 3.5}), file);
+        final var bytes = Files.readAllBytes(file);
+
+        final var flipped = bytes.clone();
+        flipped[flipped.length - 1] ^= 1;
+        Files.write(file, flipped);
+        assertThrows(IOException.class, () -> SpotPriceSegmentFile.read(file));
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8), StandardOpenOption.TRUNCATE_EXISTING);
+        assertThrows(IOException.class, () -> SpotPriceSegmentFile.read(file));
+
+        Files.write(file, new byte[4], StandardOpenOption.TRUNCATE_EXISTING);
+        assertThrows(IOException.class, () -> SpotPriceSegmentFile.read(file));
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.model.NordpoolPrice;
+import com.vesanieminen.froniusvisualizer.services.model.PakastinResponse;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static com.vesanieminen.froniusvisualizer.util.Utils.getVAT;
+import static com.vesanieminen.froniusvisualizer.util.Utils.sizeOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Slf4j
+public class SpotPriceSeriesTest {
+
+    private static PakastinResponse readSpotFile() throws IOException {
+        return mapToResponse(Files.readString(Path.of(pakastinTempFile)));
+    }
+
+    @Test
+    public void testLookupMatchesMap() throws IOException {
+        final var response = readSpotFile();
+        final var map = new LinkedHashMap<Instant, Double>();
+        response.prices.forEach(price -> map.put(price.date, price.value / 10));
+        final var series = SpotPriceSeries.of(response.prices);
+        assertEquals(map.size(), series.size());
+        map.forEach((instant, price) -> assertEquals(price, series.price(series.indexOf(instant)), 0));
+        assertEquals(response.prices.get(0).date, series.start());
+        assertEquals(response.prices.get(response.prices.size() - 1).date, series.end());
+        assertFalse(series.contains(series.start().minusSeconds(3600)));
+        assertFalse(series.contains(series.start().plusSeconds(60)));
+        assertFalse(series.contains(series.end().plusSeconds(3600)));
+    }
+
+    @Test
+    public void testUnsortedInputWithGapsAndDuplicates() {
+        final var series = SpotPriceSeries.of(new long[]{10, 12, 11, 15, 12}, new double[]{1, 2, 3, 4, 5});
+        assertEquals(4, series.size());
+        assertEquals(10, series.epochHour(0));
+        assertEquals(3, series.price(series.indexOfEpochHour(11)), 0);
+        assertEquals(5, series.price(series.indexOfEpochHour(12)), 0);
+        assertEquals(-1, series.indexOfEpochHour(13));
+        assertEquals(3, series.indexOfEpochHour(15));
+    }
+
+    @Test
+    public void testFootprint() throws IOException {
+        final var response = readSpotFile();
+        final var map = new LinkedHashMap<Instant, Double>();
+        response.prices.forEach(price -> map.put(price.date, price.value / 10));
+        final List<NordpoolPrice> priceList = map.entrySet().stream().map(item -> new NordpoolPrice(item.getValue() * getVAT(item.getKey()), item.getKey().toEpochMilli())).toList();
+        final var series = SpotPriceSeries.of(response.prices);
+
+        log.info("LinkedHashMap<Instant, Double> + List<NordpoolPrice>:\n" + sizeOf(map) + sizeOf(priceList));
+        log.info("SpotPriceSeries:\n" + sizeOf(series));
+
+        final var before = GraphLayout.parseInstance(map).totalSize() + GraphLayout.parseInstance(priceList).totalSize();
+        final var after = GraphLayout.parseInstance(series).totalSize();
+        log.info("Spot data footprint for " + series.size() + " hours: " + before + " -> " + after + " bytes");
+        assertTrue(after * 4 < before);
+    }
+
+}
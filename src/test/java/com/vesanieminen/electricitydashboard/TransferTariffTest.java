@@ -0,0 +1,105 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import com.vesanieminen.froniusvisualizer.services.model.TransferTariff;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.DayOfWeek;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.stream.LongStream;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+import static org.junit.Assert.assertEquals;
+
+public class TransferTariffTest {
+
+    private static ConsumptionSeries consumption;
+
+    @BeforeClass
+    public static void setUp() throws IOException, ParseException {
+        PriceCalculatorService.updateSpotData(SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices));
+        consumption = PriceCalculatorService.getFingridUsageData("src/main/resources/data/fingrid/consumption.csv").series();
+    }
+
+    private static int hourOfWeek(DayOfWeek day, int hour) {
+        return day.ordinal() * 24 + hour;
+    }
+
+    @Test
+    public void testPeriods() {
+        final var dayNight = TransferTariff.dayNight(5, 3);
+        assertEquals(3, dayNight.price(1, hourOfWeek(DayOfWeek.MONDAY, 6)), 0);
+        assertEquals(5, dayNight.price(1, hourOfWeek(DayOfWeek.MONDAY, 7)), 0);
+        assertEquals(5, dayNight.price(7, hourOfWeek(DayOfWeek.SUNDAY, 21)), 0);
+        assertEquals(3, dayNight.price(7, hourOfWeek(DayOfWeek.SUNDAY, 22)), 0);
+
+        final var seasonal = TransferTariff.seasonal(6, 2);
+        assertEquals(6, seasonal.price(11, hourOfWeek(DayOfWeek.SATURDAY, 12)), 0);
+        assertEquals(2, seasonal.price(11, hourOfWeek(DayOfWeek.SUNDAY, 12)), 0);
+        assertEquals(2, seasonal.price(3, hourOfWeek(DayOfWeek.MONDAY, 22)), 0);
+        assertEquals(2, seasonal.price(4, hourOfWeek(DayOfWeek.MONDAY, 12)), 0);
+
+        // A later period overrides and a period can wrap over midnight
+        final var tariff = TransferTariff.builder(1)
+                .price(2, EnumSet.allOf(Month.class), EnumSet.allOf(DayOfWeek.class), 20, 4)
+                .price(3, EnumSet.of(Month.JUNE), EnumSet.of(DayOfWeek.FRIDAY), 0, 24)
+                .build();
+        assertEquals(2, tariff.price(1, hourOfWeek(DayOfWeek.TUESDAY, 3)), 0);
+        assertEquals(1, tariff.price(1, hourOfWeek(DayOfWeek.TUESDAY, 4)), 0);
+        assertEquals(2, tariff.price(6, hourOfWeek(DayOfWeek.THURSDAY, 23)), 0);
+        assertEquals(3, tariff.price(6, hourOfWeek(DayOfWeek.FRIDAY, 23)), 0);
+    }
+
+    @Test
+    public void testTransferCostInTheSpotPass() {
+        final var flat = PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0, consumption.size(), 0, 1.24, TransferTariff.flat(7.61));
+        assertEquals(0, flat.coverage.missingSpotHours());
+        assertEquals(PriceCalculatorService.calculateFixedElectricityPrice(consumption, 0, consumption.size(), 7.61), flat.transferCost, 1e-9);
+
+        final var tariff = TransferTariff.seasonal(4.5, 2.5);
+        var expected = 0d;
+        for (int i = 0; i < consumption.size(); ++i) {
+            final var dateTime = consumption.instant(i).atZone(fiZoneID);
+            final var isWinterWeekday = TransferTariff.WINTER.contains(dateTime.getMonth()) && dateTime.getDayOfWeek() != DayOfWeek.SUNDAY && dateTime.getHour() >= 7 && dateTime.getHour() < 22;
+            expected += (isWinterWeekday ? 4.5 : 2.5) * consumption.value(i);
+        }
+        final var seasonal = PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0, consumption.size(), 0, 1.24, tariff);
+        assertEquals(expected / 100, seasonal.transferCost, 1e-9);
+        assertEquals(flat.totalCost, seasonal.totalCost, 0);
+        assertEquals(0, PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0, consumption.size(), 0, 1.24).transferCost, 0);
+    }
+
+    @Test
+    public void testTransferCostOfConsumptionWithoutSpotPrices() {
+        // a day with spot prices followed by two days after the spot data ends
+        final var spotEnd = PriceCalculatorService.getSpotDataEnd().getEpochSecond();
+        final var epochSeconds = LongStream.range(-23, 49).map(hour -> spotEnd + hour * 3600).toArray();
+        final var values = new double[epochSeconds.length];
+        Arrays.fill(values, 2);
+        final var pastSpotData = ConsumptionSeries.of(epochSeconds, values);
+
+        final var flat = PriceCalculatorService.calculateSpotElectricityPriceDetails(pastSpotData, 0, pastSpotData.size(), 0, 1.24, TransferTariff.flat(7.61));
+        assertEquals(48, flat.coverage.missingSpotHours());
+        assertEquals(72 * 2 * 7.61 / 100, flat.transferCost, 1e-9);
+
+        final var dayNight = TransferTariff.dayNight(5, 3);
+        var expected = 0d;
+        for (int i = 0; i < pastSpotData.size(); ++i) {
+            final var hour = pastSpotData.instant(i).atZone(fiZoneID).getHour();
+            expected += (hour >= 7 && hour < 22 ? 5 : 3) * pastSpotData.value(i);
+        }
+        assertEquals(expected / 100, PriceCalculatorService.calculateSpotElectricityPriceDetails(pastSpotData, 0, pastSpotData.size(), 0, 1.24, dayNight).transferCost, 1e-9);
+    }
+
+}
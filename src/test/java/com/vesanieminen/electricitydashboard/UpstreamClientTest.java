@@ -0,0 +1,141 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.sun.net.httpserver.HttpServer;
+import com.vesanieminen.froniusvisualizer.services.PakastinSpotService;
+import com.vesanieminen.froniusvisualizer.services.StreamingJson;
+import com.vesanieminen.froniusvisualizer.services.UpstreamClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class UpstreamClientTest {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/prices", exchange -> {
+            final var body = "{\"prices\":[{\"date\":\"2022-11-01T00:00:00.000Z\",\"value\":123.4}]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // the same values repeated compress well
+        server.createContext("/gzip", exchange -> {
+            final var json = IntStream.range(0, 1000).mapToObj(i -> "1.5").collect(Collectors.joining(",", "[", "]"));
+            final var isGzipAccepted = String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")).contains("gzip");
+            final var bytes = new ByteArrayOutputStream();
+            try (var out = isGzipAccepted ? new GZIPOutputStream(bytes) : bytes) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+            if (isGzipAccepted) {
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, bytes.size());
+            try (var out = exchange.getResponseBody()) {
+                bytes.writeTo(out);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                TimeUnit.SECONDS.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        UpstreamClient.clearBaseUrlOverrides();
+        server.stop(0);
+    }
+
+    @Test
+    public void testServiceUsesOverriddenBaseUrl() {
+        UpstreamClient.overrideBaseUrl("https://sahkotin.fi", baseUrl);
+        assertEquals(baseUrl + "/prices?start=x", UpstreamClient.resolve("https://sahkotin.fi/prices?start=x"));
+        assertEquals("https://api.fingrid.fi/v1", UpstreamClient.resolve("https://api.fingrid.fi/v1"));
+
+        final var response = PakastinSpotService.runAndMapToResponse("https://sahkotin.fi/prices?start=2022-11-01T00:00:00.000Z");
+        assertEquals(1, response.prices.size());
+        assertEquals(Instant.parse("2022-11-01T00:00:00Z"), response.prices.get(0).date);
+        assertEquals(123.4, response.prices.get(0).value, 0);
+    }
+
+    @Test
+    public void testRequestsToHostAreSpacedByTheMinimumInterval() throws Exception {
+        UpstreamClient.setMinimumInterval("localhost", Duration.ofMillis(200));
+        try {
+            final var startTime = System.nanoTime();
+            final var responses = IntStream.range(0, 3).mapToObj(i -> UpstreamClient.sendAsync(baseUrl + "/prices", HttpResponse.BodyHandlers.discarding())).toList();
+            for (var response : responses) {
+                assertEquals(200, response.get(10, TimeUnit.SECONDS).statusCode());
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) >= 400);
+        } finally {
+            UpstreamClient.setMinimumInterval("localhost", null);
+        }
+    }
+
+    @Test
+    public void testCompressedResponseIsDecodedWhileRead() {
+        final var before = transferStats();
+        final var values = StreamingJson.fetch("gzip", baseUrl + "/gzip", StreamingJson.decoderOf(double[].class));
+        assertEquals(1000, values.length);
+        assertEquals(1.5, values[999], 0);
+        final var after = transferStats();
+        final var wireBytes = after.wireBytes() - before.wireBytes();
+        final var decodedBytes = after.decodedBytes() - before.decodedBytes();
+        assertEquals(4000 + 1, decodedBytes);
+        assertTrue(wireBytes < decodedBytes / 10);
+    }
+
+    @Test
+    public void testCompressedStreamBeforeTheFirstRead() throws Exception {
+        try (var body = UpstreamClient.stream("gzip", baseUrl + "/gzip", Map.of()).body()) {
+            assertTrue(body.available() >= 0);
+            assertEquals(1, body.skip(1));
+            assertEquals('1', body.read());
+        }
+        final var body = UpstreamClient.stream("gzip", baseUrl + "/gzip", Map.of()).body();
+        body.close();
+        assertThrows(IOException.class, body::read);
+    }
+
+    private static UpstreamClient.TransferStats transferStats() {
+        return UpstreamClient.getTransferStats("gzip");
+    }
+
+    @Test
+    public void testRequestTimeoutOfHost() {
+        UpstreamClient.setTimeouts("localhost", new UpstreamClient.Timeouts(Duration.ofSeconds(1), Duration.ofMillis(200)));
+        assertThrows(HttpTimeoutException.class, () -> UpstreamClient.get(baseUrl + "/slow"));
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.FingridUsageData;
+import com.vesanieminen.froniusvisualizer.services.UsageDataCache;
+import com.vesanieminen.froniusvisualizer.services.UsageDataReceiver;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class UsageDataCacheTest {
+
+    private static final Path consumptionFile = Path.of("src/main/resources/data/fingrid/consumption.csv");
+
+    private static FingridUsageData upload(byte[] content) throws IOException, ParseException {
+        final var receiver = new UsageDataReceiver();
+        try (var out = receiver.receiveUpload("consumption.csv", "text/csv")) {
+            // in chunks like an upload
+            for (int offset = 0; offset < content.length; offset += 8192) {
+                out.write(content, offset, Math.min(8192, content.length - offset));
+            }
+        }
+        return receiver.getUsageData();
+    }
+
+    @Test
+    public void testSameContentIsParsedOnce() throws IOException, ParseException {
+        UsageDataCache.clear();
+        try {
+            final var content = Files.readAllBytes(consumptionFile);
+            final List<String> lines = Files.readAllLines(consumptionFile);
+            final var shorter = (String.join("\n", lines.subList(0, lines.size() - 24)) + "\n").getBytes(StandardCharsets.UTF_8);
+
+            final var first = upload(content);
+            assertSame(first, upload(content.clone()));
+            final var other = upload(shorter);
+            assertNotSame(first, other);
+            assertEquals(first.series().size() - 24, other.series().size());
+            assertEquals(2, UsageDataCache.size());
+        } finally {
+            UsageDataCache.clear();
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.vesanieminen.electricitydashboard;
+
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import com.vesanieminen.froniusvisualizer.services.model.VatTimeline;
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+import java.util.stream.IntStream;
+
+import static com.vesanieminen.froniusvisualizer.util.Utils.fiZoneID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class VatTimelineTest {
+
+    @Test
+    public void testFinnishRates() {
+        final var vat = VatTimeline.FINLAND;
+        assertEquals(1.24, vat.multiplier(ZonedDateTime.of(2022, 11, 30, 23, 0, 0, 0, fiZoneID).toInstant()), 0);
+        assertEquals(1.10, vat.multiplier(ZonedDateTime.of(2022, 12, 1, 0, 0, 0, 0, fiZoneID).toInstant()), 0);
+        assertEquals(1.10, vat.multiplier(ZonedDateTime.of(2023, 4, 30, 23, 0, 0, 0, fiZoneID).toInstant()), 0);
+        assertEquals(1.24, vat.multiplier(ZonedDateTime.of(2023, 5, 1, 0, 0, 0, 0, fiZoneID).toInstant()), 0);
+        assertEquals(1.255, vat.multiplier(ZonedDateTime.of(2024, 9, 1, 0, 0, 0, 0, fiZoneID).toInstant()), 0);
+        assertThrows(IllegalArgumentException.class, () -> vat.from(ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, fiZoneID).toInstant(), 1.2));
+    }
+
+    @Test
+    public void testWithVatMatchesMultiplierOfEachHour() {
+        final var start = SpotPriceSeries.toEpochHour(ZonedDateTime.of(2022, 1, 1, 0, 0, 0, 0, fiZoneID).toInstant());
+        final var hours = IntStream.range(0, 4 * 365 * 24).mapToLong(i -> start + i).toArray();
+        final var prices = IntStream.range(0, hours.length).mapToDouble(i -> i % 100 - 10).toArray();
+        final var series = SpotPriceSeries.of(hours, prices);
+        final var withVat = VatTimeline.FINLAND.withVat(series);
+        for (int i = 0; i < series.size(); ++i) {
+            assertEquals(series.price(i) * VatTimeline.FINLAND.multiplier(series.instant(i)), withVat[i], 0);
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.vesanieminen.electricitydashboard.benchmark;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReaderBuilder;
+import com.vesanieminen.froniusvisualizer.services.FingridUsageParser;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.FingridUsageData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a multi-year Fingrid Datahub export with OpenCSV, {@link Instant#parse} and a {@link NumberFormat},
+ * as {@code getFingridUsageData} used to do, against {@link FingridUsageParser}. Run the main method after
+ * {@code mvn test-compile}, the benchmarks are not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FingridUsageParserBenchmark {
+
+    private static final DateTimeFormatter timestampFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssX");
+
+    @Param({"false", "true"})
+    public boolean isNewFormat;
+    private byte[] csv;
+
+    @Setup
+    public void setUp() {
+        csv = createUsageCsv(5, isNewFormat).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return an hourly export of the given number of years in the seven column format with , decimals or in the
+     * eight column format with . decimals
+     */
+    public static String createUsageCsv(int years, boolean isNewFormat) {
+        final var csv = new StringBuilder("\uFEFF");
+        csv.append(isNewFormat
+                ? "Mittauspisteen tunnus;Tuotteen tyyppi;Resoluutio;Yksikkötyyppi;Lukeman tyyppi;Alkuaika;Määrä;Laatu\n"
+                : "Mittauspisteen tunnus;Tuotteen tyyppi;Resoluutio;Yksikkötyyppi;Alkuaika;Määrä;Laatu\n");
+        final var start = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        final var hours = (int) (start.plusYears(years).toEpochSecond() - start.toEpochSecond()) / 3600;
+        for (int i = 0; i < hours; ++i) {
+            final var value = (i * 37 % 400) / 100d + 0.01 * (i % 7);
+            final var formatted = String.format(Locale.ROOT, "%.2f", value);
+            csv.append("643007574000000000;8716867000030;PT1H;kWh;")
+                    .append(isNewFormat ? "BN01;" : "")
+                    .append(timestampFormatter.format(start.plusHours(i))).append(';')
+                    .append(isNewFormat ? formatted : formatted.replace('.', ','))
+                    .append(";OK\n");
+        }
+        return csv.toString();
+    }
+
+    /**
+     * The parser that {@link FingridUsageParser} replaced.
+     */
+    public static LinkedHashMap<Instant, Double> parseWithOpenCsv(Reader reader) throws IOException, ParseException {
+        final var numberFormat = NumberFormat.getInstance(Locale.FRANCE);
+        final var map = new LinkedHashMap<Instant, Double>();
+        final var csvReader = new CSVReaderBuilder(reader).withCSVParser(new CSVParserBuilder().withSeparator(';').build()).build();
+        final var header = csvReader.readNext();
+        final var isNewFormat = header.length == 8;
+        final var offset = isNewFormat ? 1 : 0;
+        String[] line;
+        while ((line = csvReader.readNext()) != null) {
+            if ("MISSING".equals(line[6 + offset])) {
+                break;
+            }
+            final var instant = Instant.parse(line[4 + offset]);
+            if (isNewFormat && line[6].contains(".")) {
+                map.put(instant, Double.parseDouble(line[6]));
+            } else {
+                map.put(instant, numberFormat.parse(line[5 + offset]).doubleValue());
+            }
+        }
+        return map;
+    }
+
+    @Benchmark
+    public LinkedHashMap<Instant, Double> openCsv() throws IOException, ParseException {
+        return parseWithOpenCsv(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public FingridUsageData byteParser() throws IOException, ParseException {
+        return FingridUsageParser.parse(new ByteArrayInputStream(csv));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FingridUsageParserBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.vesanieminen.electricitydashboard.benchmark;
+
+import com.fatboyindustrial.gsonjavatime.Converters;
+import com.google.gson.GsonBuilder;
+import com.vesanieminen.froniusvisualizer.services.JsonCodecs;
+import com.vesanieminen.froniusvisualizer.services.model.FingridRealtimeResponse;
+import com.vesanieminen.froniusvisualizer.services.model.PakastinResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+
+/**
+ * Compares decoding the large responses with a Gson built per call and reflective binding, as the services used to
+ * do, against the shared {@link JsonCodecs#gson} with its hand-written adapters. Run the main method after
+ * {@code mvn test-compile}, the benchmarks are not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecsBenchmark {
+
+    private static final DateTimeFormatter timestampFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
+    private String pakastinJson;
+    private String fingridRealtimeJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        pakastinJson = Files.readString(Path.of(pakastinTempFile));
+        fingridRealtimeJson = createFingridRealtimeJson(7 * 24 * 20);
+    }
+
+    /**
+     * @return a realtime response with the given number of 3min samples in each of the six series
+     */
+    public static String createFingridRealtimeJson(int samples) {
+        final var json = new StringBuilder("{");
+        final var start = ZonedDateTime.of(2022, 10, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        final var names = new String[]{"HydroPower", "NuclearPower", "WindPower", "SolarPower", "Consumption", "NetImportExport"};
+        for (int n = 0; n < names.length; ++n) {
+            json.append(n == 0 ? "" : ",").append('"').append(names[n]).append("\":[");
+            for (int i = 0; i < samples; ++i) {
+                json.append(i == 0 ? "" : ",")
+                        .append("{\"value\":").append(1000 + (i * 37 + n * 11) % 2000).append(".5")
+                        .append(",\"start_time\":\"").append(timestampFormatter.format(start.plusMinutes(3L * i))).append('"')
+                        .append(",\"end_time\":\"").append(timestampFormatter.format(start.plusMinutes(3L * i + 3))).append("\"}");
+            }
+            json.append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    @Benchmark
+    public PakastinResponse pakastinReflective() {
+        return Converters.registerAll(new GsonBuilder()).create().fromJson(pakastinJson, PakastinResponse.class);
+    }
+
+    @Benchmark
+    public PakastinResponse pakastinCodecs() {
+        return JsonCodecs.gson.fromJson(pakastinJson, PakastinResponse.class);
+    }
+
+    @Benchmark
+    public FingridRealtimeResponse fingridRealtimeReflective() {
+        return Converters.registerAll(new GsonBuilder()).create().fromJson(fingridRealtimeJson, FingridRealtimeResponse.class);
+    }
+
+    @Benchmark
+    public FingridRealtimeResponse fingridRealtimeCodecs() {
+        return JsonCodecs.gson.fromJson(fingridRealtimeJson, FingridRealtimeResponse.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonCodecsBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.vesanieminen.electricitydashboard.benchmark;
+
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService;
+import com.vesanieminen.froniusvisualizer.services.PriceCalculatorService.SpotCalculation;
+import com.vesanieminen.froniusvisualizer.services.model.ConsumptionSeries;
+import com.vesanieminen.froniusvisualizer.services.model.SpotPriceSeries;
+import com.vesanieminen.froniusvisualizer.services.model.TransferTariff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.mapToResponse;
+import static com.vesanieminen.froniusvisualizer.services.PakastinSpotService.pakastinTempFile;
+
+/**
+ * Spot and time-of-use transfer cost of a year of hourly consumption in one pass, with a flat transfer as the
+ * baseline. Run the main method after {@code mvn test-compile}, the benchmarks are not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferTariffBenchmark {
+
+    private final TransferTariff flat = TransferTariff.flat(4.5);
+    private final TransferTariff seasonal = TransferTariff.seasonal(4.5, 2.5);
+    private ConsumptionSeries consumption;
+
+    @Setup
+    public void setUp() throws IOException {
+        PriceCalculatorService.updateSpotData(SpotPriceSeries.of(mapToResponse(Files.readString(Path.of(pakastinTempFile))).prices));
+        final var start = Instant.parse("2021-01-01T00:00:00Z").getEpochSecond();
+        final var hours = 365 * 24;
+        final var epochSeconds = new long[hours];
+        final var values = new double[hours];
+        for (int i = 0; i < hours; ++i) {
+            epochSeconds[i] = start + i * 3600L;
+            values[i] = (i * 37 % 400) / 100d;
+        }
+        consumption = ConsumptionSeries.of(epochSeconds, values);
+    }
+
+    @Benchmark
+    public SpotCalculation flatTransfer() {
+        return PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0, consumption.size(), 0.3, 1.24, flat);
+    }
+
+    @Benchmark
+    public SpotCalculation seasonalTransfer() {
+        return PriceCalculatorService.calculateSpotElectricityPriceDetails(consumption, 0, consumption.size(), 0.3, 1.24, seasonal);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TransferTariffBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}